@@ -0,0 +1,43 @@
+package xyz.olooko.comm.netcomm;
+
+class BenchmarkArgs
+{
+    // "numeric": integers, floats and booleans only; "mixed": every argument type;
+    // "blob": a single byte array. payload is the approximate text size in bytes.
+    static CSocketDataArgs create(String mix, int payload)
+    {
+        CSocketDataArgs args = new CSocketDataArgs();
+
+        switch (mix) {
+            case "numeric" -> {
+                for (int n = 0; n < Math.max(1, payload / 6); n++) 
+                {
+                    switch (n % 3) {
+                        case 0 -> args.add(new CInteger(n * 100003L));
+                        case 1 -> args.add(new CFloat(n * 0.25));
+                        default -> args.add(new CBoolean(n % 2 == 0));
+                    }
+                }
+            }
+            case "mixed" -> {
+                for (int n = 0; n < Math.max(1, payload / 24); n++) 
+                {
+                    switch (n % 5) {
+                        case 0 -> args.add(new CInteger(n * 1000));
+                        case 1 -> args.add(new CFloat(n * 0.5));
+                        case 2 -> args.add(new CBoolean(n % 2 == 0));
+                        case 3 -> args.add(new CString("value-" + n));
+                        default -> args.add(new CByteArray(new byte[48]));
+                    }
+                }
+            }
+            default -> {
+                byte[] ba = new byte[payload];
+                for (int n = 0; n < ba.length; n++)
+                    ba[n] = (byte)n;
+                args.add(new CByteArray(ba));
+            }
+        }
+        return args;
+    }
+}
@@ -0,0 +1,95 @@
+package xyz.olooko.comm.netcomm;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSocketDataAppendBenchmark
+{
+    private static final int FRAMES = 64;
+
+    @Param({ "1460", "4096", "65536" })
+    public int readSize;
+
+    private byte[] _stream;
+    private byte[] _buffer;
+    private CSocketData _data;
+
+    // bytesCopied / frames is the receive buffer's copy cost per frame: the append itself plus
+    // any unread tail moved by compaction or growth.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters
+    {
+        public long frames;
+        public long bytesCopied;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            frames = 0;
+            bytesCopied = 0;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        CSocketDataArgs args = new CSocketDataArgs();
+        args.add(new CInteger(-256));
+        args.add(new CBoolean(true));
+        args.add(new CString("Hello"));
+
+        CSocketSendData data = new CSocketSendData(0x88, args);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        for (int n = 0; n < FRAMES; n++)
+            stream.write(data.getBytes(), 0, data.getLength());
+
+        _stream = stream.toByteArray();
+        _buffer = new byte[readSize];
+        _data = new CSocketData();
+    }
+
+    @Benchmark
+    public void append(Counters counters, Blackhole bh)
+    {
+        long copied = _data.getCopiedBytes();
+
+        // Reads are cut at fixed offsets, so frames straddle read boundaries as they would off a socket.
+        for (int pos = 0; pos < _stream.length; pos += _buffer.length)
+        {
+            int length = Math.min(_buffer.length, _stream.length - pos);
+            System.arraycopy(_stream, pos, _buffer, 0, length);
+            _data.append(_buffer, length);
+
+            while (_data.manipulate() == CSocketDataManipulationResult.Completed)
+            {
+                bh.consume(_data.getArgs());
+                counters.frames++;
+            }
+        }
+
+        counters.bytesCopied += _data.getCopiedBytes() - copied;
+    }
+}
@@ -0,0 +1,72 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSocketDataBenchmark
+{
+    @Param({ "numeric", "mixed", "blob" })
+    public String mix;
+
+    @Param({ "16", "1024", "65536" })
+    public int payload;
+
+    @Param({ "copy", "zeroCopy", "columns" })
+    public String mode;
+
+    private byte[] _frame;
+    private byte[] _segmented;
+    private CSocketData _data;
+
+    @Setup
+    public void setup()
+    {
+        _frame = new CSocketSendData(0x88, BenchmarkArgs.create(mix, payload)).getBytes();
+        _segmented = new byte[Math.min(_frame.length, 1460)];
+        _data = new CSocketData();
+        _data.setZeroCopy(mode.equals("zeroCopy"));
+        _data.setColumnArgs(mode.equals("columns"));
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh)
+    {
+        _data.append(_frame, _frame.length);
+
+        while (_data.manipulate() == CSocketDataManipulationResult.Completed)
+            bh.consume(_data.isColumnArgs() ? _data.getColumnArgs() : _data.getArgs());
+    }
+
+    @Benchmark
+    public void decodeSegmented(Blackhole bh)
+    {
+        // Feeds the frame in MSS-sized reads, as a TCP receive loop would.
+        for (int pos = 0; pos < _frame.length; pos += _segmented.length)
+        {
+            int length = Math.min(_segmented.length, _frame.length - pos);
+            System.arraycopy(_frame, pos, _segmented, 0, length);
+            _data.append(_segmented, length);
+
+            while (_data.manipulate() == CSocketDataManipulationResult.Completed)
+                bh.consume(_data.isColumnArgs() ? _data.getColumnArgs() : _data.getArgs());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSocketDataDecodeBenchmark
+{
+    @Param({ "1", "10", "100" })
+    public int argc;
+
+    private byte[] _frame;
+    private CSocketData _data;
+
+    @Setup
+    public void setup()
+    {
+        CSocketDataArgs args = new CSocketDataArgs();
+
+        for (int n = 0; n < argc; n++)
+        {
+            switch (n % 5) {
+                case 0 -> args.add(new CInteger(n * 1000));
+                case 1 -> args.add(new CFloat(n * 0.5));
+                case 2 -> args.add(new CBoolean(n % 2 == 0));
+                case 3 -> args.add(new CString("value-" + n));
+                default -> args.add(new CByteArray(new byte[16]));
+            }
+        }
+
+        _frame = new CSocketSendData(0x88, args).getBytes();
+        _data = new CSocketData();
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh)
+    {
+        _data.append(_frame, _frame.length);
+
+        while (_data.manipulate() == CSocketDataManipulationResult.Completed)
+            bh.consume(_data.getArgs());
+    }
+}
@@ -0,0 +1,63 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSocketSendDataBenchmark
+{
+    @Param({ "numeric", "mixed", "blob" })
+    public String mix;
+
+    @Param({ "16", "1024", "65536" })
+    public int payload;
+
+    private CSocketDataArgs _args;
+    private CSocketSendDataEncoder _heap;
+    private CSocketSendDataEncoder _direct;
+
+    @Setup
+    public void setup()
+    {
+        _args = BenchmarkArgs.create(mix, payload);
+        _heap = new CSocketSendDataEncoder(CSocketSendDataEncoder.getFrameLength(_args), false);
+        _direct = new CSocketSendDataEncoder(CSocketSendDataEncoder.getFrameLength(_args), true);
+    }
+
+    @Benchmark
+    public CSocketSendData sendData()
+    {
+        return new CSocketSendData(0x88, _args);
+    }
+
+    @Benchmark
+    public ByteBuffer encodeHeap()
+    {
+        _heap.encode(0x88, _args);
+        return _heap.getBuffer();
+    }
+
+    @Benchmark
+    public ByteBuffer encodeDirect()
+    {
+        _direct.encode(0x88, _args);
+        return _direct.getBuffer();
+    }
+}
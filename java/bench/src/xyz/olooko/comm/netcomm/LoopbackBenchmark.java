@@ -0,0 +1,143 @@
+package xyz.olooko.comm.netcomm;
+
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackBenchmark
+{
+    @Param({ "tcp", "tcp-eventloop", "udp" })
+    public String transport;
+
+    @Param({ "mixed", "blob" })
+    public String mix;
+
+    @Param({ "16", "1024", "16384" })
+    public int payload;
+
+    private CSocketEventLoopGroup _group;
+    private TcpServer _server;
+    private CSocket _echo;
+    private CSocket _client;
+    private CSocketAddress _serverAddress;
+    private CSocketSendData _data;
+    private Semaphore _replies;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        _data = new CSocketSendData(0x88, BenchmarkArgs.create(mix, payload));
+        _replies = new Semaphore(0);
+
+        CSocketReceivedCallback reply = (socket, data) -> {
+            if (data.getResult() == CSocketReceivedDataResult.Completed)
+                _replies.release();
+        };
+
+        if (transport.equals("udp")) 
+        {
+            _serverAddress = new CSocketAddress("127.0.0.1", freePort(true));
+
+            UdpSocket echo = NetworkComm.UdpCast(_serverAddress);
+            echo.setReceivedCallback((socket, data) -> {
+                if (data.getResult() == CSocketReceivedDataResult.Completed)
+                    echo.send(_data, data.getRemoteAddress());
+            });
+            _echo = echo;
+
+            _client = NetworkComm.UdpCast(new CSocketAddress("127.0.0.1", freePort(true)));
+            _client.setReceivedCallback(reply);
+        }
+        else 
+        {
+            _serverAddress = new CSocketAddress("127.0.0.1", freePort(false));
+
+            TcpServerAcceptCallback accept = (tcpsocket) -> {
+                if (tcpsocket.isAvailable()) 
+                {
+                    _echo = tcpsocket;
+                    tcpsocket.setReceivedCallback((socket, data) -> {
+                        if (data.getResult() == CSocketReceivedDataResult.Completed)
+                            tcpsocket.send(_data);
+                    });
+                }
+            };
+
+            if (transport.equals("tcp-eventloop")) 
+            {
+                _group = new CSocketEventLoopGroup(2);
+                _server = NetworkComm.TcpListen(_serverAddress, _group);
+                _server.setAcceptCallback(accept);
+                _client = NetworkComm.TcpConnect(_serverAddress, _group);
+            }
+            else 
+            {
+                _server = NetworkComm.TcpListen(_serverAddress);
+                _server.setAcceptCallback(accept);
+                _client = NetworkComm.TcpConnect(_serverAddress);
+            }
+            _client.setReceivedCallback(reply);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _client.close();
+
+        if (_echo != null)
+            _echo.close();
+
+        if (_server != null)
+            _server.close();
+
+        if (_group != null)
+            _group.close();
+    }
+
+    @Benchmark
+    public void roundTrip() throws Exception
+    {
+        if (_client instanceof TcpSocket)
+            ((TcpSocket)_client).send(_data);
+        else
+            ((UdpSocket)_client).send(_data, _serverAddress);
+
+        if (!_replies.tryAcquire(5, TimeUnit.SECONDS))
+            throw new IllegalStateException("no reply within 5 seconds");
+    }
+
+    private static int freePort(boolean udp) throws Exception
+    {
+        if (udp) 
+        {
+            try (DatagramSocket s = new DatagramSocket(0)) {
+                return s.getLocalPort();
+            }
+        }
+
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+}
@@ -1,17 +1,53 @@
 package xyz.olooko.comm.netcomm;
 
+import java.nio.ByteBuffer;
+
 public class CByteArray implements IDataType
 {
     private byte[] _value;
+    private ByteBuffer _buffer;
 
+    // Reading the value detaches it from the receive buffer, so getBuffer() and isView() stop pointing at reused bytes.
     public byte[] getValue() {
+        if (_value == null) {
+            byte[] value = new byte[_buffer.remaining()];
+            _buffer.duplicate().get(value);
+            _value = value;
+            _buffer = null;
+        }
         return _value;
     }
 
+    public ByteBuffer getBuffer() {
+        ByteBuffer buffer = _buffer;
+        if (buffer != null)
+            return buffer.duplicate();
+        return ByteBuffer.wrap(_value).asReadOnlyBuffer();
+    }
+
+    public int getLength() {
+        return (_value != null) ? _value.length : _buffer.remaining();
+    }
+
+    public boolean isView() {
+        return _buffer != null;
+    }
+
     public CByteArray(byte[] value) {
         _value = value;
     }
 
+    // A view over the receive buffer is only valid until the received callback returns.
+    public CByteArray(ByteBuffer buffer) {
+        _buffer = buffer.asReadOnlyBuffer();
+    }
+
+    public CByteArray copy() {
+        byte[] value = new byte[getLength()];
+        getBuffer().get(value);
+        return new CByteArray(value);
+    }
+
     @Override
     public DataType getDataType() {
         return DataType.CByteArray;
@@ -20,10 +56,10 @@ public class CByteArray implements IDataType
     @Override
     public String toString() {
         String s = "";
-        for (byte b: _value) {
+        for (byte b: getValue()) {
             if (s != "") s += ",";
             s += String.format("0x%02X", b & 0xFF);  
         }
         return s;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package xyz.olooko.comm.netcomm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+public class CFileRegion extends CByteArray
+{
+    private FileChannel _channel;
+    private long _position;
+    private int _length;
+    private ByteBuffer _mapped;
+
+    public FileChannel getChannel() {
+        return _channel;
+    }
+
+    public long getPosition() {
+        return _position;
+    }
+
+    @Override
+    public byte[] getValue() {
+        byte[] value = new byte[_length];
+        getBuffer().get(value);
+        return value;
+    }
+
+    // Throws rather than reading back empty, which would send a body shorter than its length prefix.
+    @Override
+    public ByteBuffer getBuffer() {
+        try {
+            map();
+        } 
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return _mapped.duplicate();
+    }
+
+    void map() throws IOException {
+        if (_mapped != null)
+            return;
+
+        if (_position < 0 || _length < 0 || _position + _length > _channel.size())
+            throw new EOFException();
+
+        _mapped = _channel.map(FileChannel.MapMode.READ_ONLY, _position, _length);
+    }
+
+    @Override
+    public int getLength() {
+        return _length;
+    }
+
+    @Override
+    public boolean isView() {
+        return true;
+    }
+
+    public CFileRegion(FileChannel channel) {
+        this(channel, 0, size(channel));
+    }
+
+    public CFileRegion(FileChannel channel, long position, int length) {
+        super((byte[])null);
+
+        _channel = channel;
+        _position = position;
+        _length = length;
+    }
+
+    @Override
+    public CByteArray copy() {
+        return new CByteArray(getValue());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("file(%d,%d)", _position, _length);
+    }
+
+    byte checksum() {
+        return CSocketSendDataEncoder.checksum(getBuffer());
+    }
+
+    void transferTo(WritableByteChannel target) throws IOException {
+        long position = _position;
+        long end = _position + _length;
+
+        while (position < end) 
+        {
+            long count = _channel.transferTo(position, end - position, target);
+
+            if (count <= 0)
+                throw new EOFException();
+
+            position += count;
+        }
+    }
+
+    private static int size(FileChannel channel) {
+        try {
+            return (int)Math.min(channel.size(), Integer.MAX_VALUE);
+        } 
+        catch (Exception e) {}
+
+        return 0;
+    }
+}
@@ -1,22 +1,63 @@
 package xyz.olooko.comm.netcomm;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class CSocket implements Runnable
 {
+    private static final int COALESCE_SIZE = 64 * 1024;
+    private static final int READ_SIZE = 4096;
+    private static final int DATAGRAM_SIZE = 65536;
+    private static final int PEER_CAPACITY = 65536;
+    private static final long PEER_BYTES = 64L * 1024 * 1024;
+
     protected Socket _socket;
     protected DatagramSocket _dgram;
+    protected SocketChannel _channel;
 
     private CSocketData _data;
     private CSocketReceivedCallback _callback;
-    private CSocketDataManipulationResult _result;
+    private CSocketReceivedFrameCallback _frameCallback;
+    private CSocketReceivedDataPool _pool;
+    private CSocketPeerTable _peers;
+    private volatile CSocketDataManipulationResult _result;
+    private CSocketTimeout _timeout;
+    private long _interruptTimeout;
+    private volatile CSocketAddress _partialAddress;
     
     private CSocketAddress _localAddress;
+    private CSocketAddress _channelAddress;
     private CSocketProtocolType _protocol;
 
+    private CSocketEventLoop _loop;
+    private SelectionKey _key;
+    private ByteBuffer[] _writeBuffers;
+    private AtomicBoolean _flushScheduled;
+
+    private CSocketOutboundQueue _outbound;
+    private Semaphore _writeLock;
+    private AtomicBoolean _receiving;
+    private boolean _handoff;
+    private byte[] _writeBuffer;
+
+    private CSocketMetrics _metrics;
+    private AtomicBoolean _open;
+    private AtomicBoolean _closed;
+    private volatile CSocketCompressor _compressor;
+
     public Boolean isAvailable() 
     {
         if (_protocol == CSocketProtocolType.Tcp) {
@@ -38,36 +79,169 @@ public abstract class CSocket implements Runnable
         return _protocol;
     }    
 
+    public boolean isZeroCopy()
+    {
+        return _data.isZeroCopy();
+    }
+
+    public void setZeroCopy(boolean zeroCopy)
+    {
+        _data.setZeroCopy(zeroCopy);
+    }
+
+    public CSocketCompression getCompression()
+    {
+        return _data.getCompression();
+    }
+
+    public void setCompression(CSocketCompression compression)
+    {
+        CSocketCompressor compressor = _compressor;
+
+        _data.setCompression(compression);
+        _compressor = (compression != null) ? new CSocketCompressor(compression) : null;
+
+        if (compressor != null)
+            compressor.close();
+    }
+
+    public boolean isColumnArgs()
+    {
+        return _data.isColumnArgs();
+    }
+
+    public void setColumnArgs(boolean columnArgs)
+    {
+        _data.setColumnArgs(columnArgs);
+    }
+
+    public void setReceivedStreamCallback(int threshold, CSocketReceivedStreamCallback callback)
+    {
+        _data.setColumnArgs(false);
+        _data.setStreamCallback(this, threshold, callback);
+    }
+
+    public boolean isPooled()
+    {
+        return _pool != null;
+    }
+
+    public void setPooled(boolean pooled)
+    {
+        _pool = pooled ? new CSocketReceivedDataPool() : null;
+    }
+
+    public long getInterruptTimeout()
+    {
+        return _interruptTimeout;
+    }
+
+    public void setInterruptTimeout(long millis)
+    {
+        _interruptTimeout = millis;
+    }
+
+    public CSocketEventLoop getEventLoop()
+    {
+        return _loop;
+    }
+
+    public CSocketMetrics getMetrics()
+    {
+        return _metrics;
+    }
+
     public CSocket(Socket s, CSocketProtocolType protocolType)
     {
-        initialize(s, null, protocolType);
+        this(s, protocolType, NetworkComm.getMetrics());
     }
 
     public CSocket(DatagramSocket d, CSocketProtocolType protocolType)
     {
-        initialize(null, d, protocolType);
+        this(d, protocolType, NetworkComm.getMetrics());
+    }
+
+    public CSocket(SocketChannel c, CSocketEventLoop loop, CSocketProtocolType protocolType)
+    {
+        this(c, loop, protocolType, NetworkComm.getMetrics());
+    }
+
+    CSocket(Socket s, CSocketProtocolType protocolType, CSocketMetrics metrics)
+    {
+        initialize(s, null, protocolType, metrics);
+    }
+
+    CSocket(DatagramSocket d, CSocketProtocolType protocolType, CSocketMetrics metrics)
+    {
+        initialize(null, d, protocolType, metrics);
     }
 
-    private void initialize(Socket s, DatagramSocket d, CSocketProtocolType protocolType)
+    CSocket(SocketChannel c, CSocketEventLoop loop, CSocketProtocolType protocolType, CSocketMetrics metrics)
+    {
+        initialize((c != null) ? c.socket() : null, null, protocolType, metrics);
+
+        if (isAvailable())
+        {
+            _channel = c;
+            _channelAddress = new CSocketAddress((InetSocketAddress)_socket.getRemoteSocketAddress());
+
+            _loop = loop;
+            _writeBuffers = new ByteBuffer[16];
+            _flushScheduled = new AtomicBoolean(false);
+            _outbound = new CSocketOutboundQueue(this::scheduleFlush);
+            _outbound.setMetrics(_metrics);
+
+            _loop.execute(() -> {
+                _key = _loop.register(_channel, 0, this);
+
+                if (_key == null)
+                    close();
+            });
+        }
+    }
+
+    private void initialize(Socket s, DatagramSocket d, CSocketProtocolType protocolType, CSocketMetrics metrics)
     {
         _socket = s;
         _dgram = d;
 
-        _data = new CSocketData();
+        _data = new CSocketData((s != null && s.getChannel() != null) || (d != null && d.getChannel() != null));
         _protocol = protocolType;
         _result = CSocketDataManipulationResult.NoData;
+        _timeout = CSocketTimer.getShared().newTimeout(this::interrupted);
+        _interruptTimeout = 15000;
+        _receiving = new AtomicBoolean(false);
+        _metrics = new CSocketMetrics(metrics);
+        _open = new AtomicBoolean(false);
+        _closed = new AtomicBoolean(false);
         _localAddress = new CSocketAddress("0.0.0.0", 0);
 
+        if (_protocol == CSocketProtocolType.Tcp)
+        {
+            _outbound = new CSocketOutboundQueue(this::flushStream, CSocketOutboundQueue.WRITER);
+            _outbound.setMetrics(_metrics);
+            _writeLock = new Semaphore(1);
+        }
+        else if (_protocol == CSocketProtocolType.Udp)
+        {
+            _peers = new CSocketPeerTable(PEER_CAPACITY, PEER_BYTES);
+        }
+
         if (isAvailable())
         {
             if (_protocol == CSocketProtocolType.Tcp) {
                 InetSocketAddress address = (InetSocketAddress)_socket.getLocalSocketAddress();
                 _localAddress = new CSocketAddress(address.getAddress(), address.getPort());
+
+                _open.set(true);
+                _metrics.connectionOpened();
             }
             else if (_protocol == CSocketProtocolType.Udp) {
                 InetSocketAddress address = (InetSocketAddress)_dgram.getLocalSocketAddress();
                 _localAddress = new CSocketAddress(address.getAddress(), address.getPort());
             }
+
+            _metrics.register(getClass().getSimpleName(), _localAddress);
         }
     }
 
@@ -84,6 +258,20 @@ public abstract class CSocket implements Runnable
                 }  
             } 
             catch (Exception e) {}
+
+            CSocketCompressor compressor = _compressor;
+
+            if (compressor != null)
+                compressor.close();
+
+            if (_open.compareAndSet(true, false))
+                _metrics.connectionClosed();
+
+            _metrics.unregister();
+
+            // A closed channel is deregistered without a final read, so the loop reports Closed itself.
+            if (_loop != null && (_callback != null || _frameCallback != null))
+                _loop.execute(() -> closed(_channelAddress));
         }
     }
 
@@ -92,37 +280,579 @@ public abstract class CSocket implements Runnable
         if (isAvailable()) 
         {
             _callback = callback;
+            startReceiving();
+        }
+    }
 
-            Thread t = new Thread(this);
-            t.start();
+    public void setReceivedFrameCallback(CSocketReceivedFrameCallback callback)
+    {
+        if (isAvailable()) 
+        {
+            _data.setReader(true);
+            _frameCallback = callback;
+            startReceiving();
+        }
+    }
+
+    private void startReceiving()
+    {
+        if (_loop != null)
+        {
+            _loop.execute(() -> {
+                setInterest(SelectionKey.OP_READ, true);
+            });
+        }
+        else if (!_handoff && _receiving.compareAndSet(false, true))
+        {
+            NetworkComm.execute(this);
         }
     }
+
+    // A hand-off socket never reads itself; a UdpListener reader feeds it through received(datagram, address).
+    void setHandoff(boolean handoff)
+    {
+        _handoff = handoff;
+    }
+
+    void received(byte[] datagram, InetSocketAddress address)
+    {
+        if (datagram == null)
+        {
+            closed(_localAddress);
+            return;
+        }
+
+        _data.append(datagram, datagram.length);
+        _metrics.received(datagram.length, _data.getCapacity());
+
+        receivedFrom(_peers.address(address));
+    }
          
     protected void send(CSocketSendData data, CSocketAddress address)
     {
-        if (isAvailable()) 
+        if (isAvailable() && data.getBuildResult() == CSocketSendDataBuildResult.Successful) 
         {
+            // Queued frames record their send latency when the drain writes them, see CSocketOutboundQueue.
+            long start = _metrics.isLatencyEnabled() ? System.nanoTime() : 0;
+
             try {
+                byte[] bytes = encode(data);
+
                 if (_protocol == CSocketProtocolType.Tcp)
                 {
-                    _socket.getOutputStream().write(data.getBytes(), 0, data.getLength());
-                    _socket.getOutputStream().flush();
+                    _outbound.add(ByteBuffer.wrap(bytes), data.getCommand());
                 } 
                 else if (_protocol == CSocketProtocolType.Udp)
                 {
-                    DatagramPacket packet = new DatagramPacket(data.getBytes(), data.getLength(), address.getInetAddress(), address.getPort());
+                    DatagramPacket packet = new DatagramPacket(bytes, bytes.length, address.getInetAddress(), address.getPort());
                     _dgram.send(packet);
+                    _metrics.frameSent(data.getCommand(), bytes.length);
+
+                    if (start != 0)
+                        _metrics.recordSend(data.getCommand(), System.nanoTime() - start);
                 }
             } 
-            catch (Exception e) {}
+            catch (Exception e) {
+                _metrics.sendFailed();
+            }
+        }
+    }
+
+    protected void send(ByteBuffer frame, CSocketAddress address)
+    {
+        if (isAvailable()) 
+        {
+            int command = CSocketSendDataEncoder.getCommand(frame);
+            int length = frame.remaining();
+            long start = _metrics.isLatencyEnabled() ? System.nanoTime() : 0;
+
+            try {
+                if (_protocol == CSocketProtocolType.Tcp && _loop == null && _outbound.getFlushPolicy().isImmediate() && _outbound.isEmpty() && _writeLock.tryAcquire())
+                {
+                    // Nothing is queued ahead of this frame, so it can be written from the caller's buffer without a copy.
+                    try {
+                        if (frame.hasArray()) 
+                        {
+                            _socket.getOutputStream().write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+                            frame.position(frame.limit());
+                        }
+                        else if (_socket.getChannel() != null) 
+                        {
+                            while (frame.hasRemaining())
+                                _socket.getChannel().write(frame);
+                        }
+                        else 
+                        {
+                            byte[] b = new byte[frame.remaining()];
+                            frame.get(b);
+                            _socket.getOutputStream().write(b, 0, b.length);
+                        }
+                        _socket.getOutputStream().flush();
+                    }
+                    finally {
+                        _writeLock.release();
+                    }
+
+                    _metrics.frameSent(command, length);
+
+                    if (start != 0)
+                        _metrics.recordSend(command, System.nanoTime() - start);
+
+                    if (!_outbound.isEmpty())
+                        flushStream();
+                }
+                else if (_protocol == CSocketProtocolType.Tcp)
+                {
+                    ByteBuffer b = ByteBuffer.allocate(frame.remaining()).put(frame);
+                    _outbound.add(b.flip(), command);
+                }
+                else if (_protocol == CSocketProtocolType.Udp)
+                {
+                    sendDatagram(frame, address);
+                    _metrics.frameSent(command, length);
+
+                    if (start != 0)
+                        _metrics.recordSend(command, System.nanoTime() - start);
+                }
+            } 
+            catch (Exception e) {
+                _metrics.sendFailed();
+            }
+        }
+    }
+
+    void sendBatch(ByteBuffer datagram, CSocketAddress address)
+    {
+        if (isAvailable())
+        {
+            try {
+                sendDatagram(datagram, address);
+            }
+            catch (Exception e) {
+                _metrics.sendFailed();
+            }
+        }
+    }
+
+    private void sendDatagram(ByteBuffer frame, CSocketAddress address) throws IOException
+    {
+        if (frame.hasArray())
+        {
+            DatagramPacket packet = new DatagramPacket(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining(), address.getInetAddress(), address.getPort());
+            _dgram.send(packet);
+            frame.position(frame.limit());
+        }
+        else if (_dgram.getChannel() != null)
+        {
+            _dgram.getChannel().send(frame, new InetSocketAddress(address.getInetAddress(), address.getPort()));
+        }
+        else
+        {
+            byte[] b = new byte[frame.remaining()];
+            frame.get(b);
+            _dgram.send(new DatagramPacket(b, b.length, address.getInetAddress(), address.getPort()));
+        }
+    }
+
+    protected void sendAll(List<CSocketSendData> data)
+    {
+        if (isAvailable() && _protocol == CSocketProtocolType.Tcp) 
+        {
+            ArrayList<ByteBuffer> frames = new ArrayList<ByteBuffer>(data.size());
+            int[] commands = new int[data.size()];
+
+            for (CSocketSendData frame : data)
+            {
+                if (frame.getBuildResult() != CSocketSendDataBuildResult.Successful)
+                    continue;
+
+                commands[frames.size()] = frame.getCommand();
+                frames.add(ByteBuffer.wrap(encode(frame)));
+            }
+
+            _outbound.addAll(frames, commands);
+        }
+    }
+
+    byte[] encode(CSocketSendData data)
+    {
+        CSocketCompressor compressor = _compressor;
+        return (compressor != null) ? compressor.compress(data.getBytes()) : data.getBytes();
+    }
+
+    protected void flush()
+    {
+        if (isAvailable() && _protocol == CSocketProtocolType.Tcp && !_outbound.isEmpty()) 
+        {
+            if (_loop != null)
+                scheduleFlush();
+            else
+                flushStream();
+        }
+    }
+
+    protected CSocketFlushPolicy getFlushPolicy()
+    {
+        return (_outbound != null) ? _outbound.getFlushPolicy() : null;
+    }
+
+    protected void setFlushPolicy(CSocketFlushPolicy policy)
+    {
+        if (_outbound != null)
+            _outbound.setFlushPolicy(policy);
+    }
+
+    protected CSocketWriteWatermark getWriteWatermark()
+    {
+        return (_outbound != null) ? _outbound.getWriteWatermark() : null;
+    }
+
+    protected void setWriteWatermark(CSocketWriteWatermark watermark)
+    {
+        if (_outbound != null)
+            _outbound.setWriteWatermark(watermark);
+    }
+
+    protected void setWritabilityChangedCallback(CSocketWritabilityChangedCallback callback)
+    {
+        if (_outbound != null)
+            _outbound.setWritabilityChanged((callback != null) ? (writable) -> callback.callMethod(this, writable) : null);
+    }
+
+    // A socket with no receive loop never sees the peer's FIN or RST, so this reads from its channel without
+    // blocking: end of stream or an error closes it, and any bytes that did arrive are kept for the parser.
+    // A socket that is already receiving notices a close itself, and a plain Socket cannot be probed.
+    protected boolean probe()
+    {
+        if (!isAvailable() || _protocol != CSocketProtocolType.Tcp || _socket.isClosed())
+            return false;
+
+        if (_callback != null || _frameCallback != null || _socket.getChannel() == null)
+            return true;
+
+        int bytesTransferred;
+
+        try {
+            if (_loop != null)
+            {
+                bytesTransferred = _channel.read(_data.getWritableBuffer(READ_SIZE));
+            }
+            else
+            {
+                SocketChannel c = _socket.getChannel();
+
+                synchronized (c.blockingLock())
+                {
+                    c.configureBlocking(false);
+
+                    try {
+                        bytesTransferred = c.read(_data.getWritableBuffer(READ_SIZE));
+                    }
+                    finally {
+                        c.configureBlocking(true);
+                    }
+                }
+            }
+        }
+        catch (Exception e) {
+            bytesTransferred = -1;
+        }
+
+        _data.commit(Math.max(0, bytesTransferred));
+
+        if (bytesTransferred > 0)
+            _metrics.received(bytesTransferred, _data.getCapacity());
+
+        if (bytesTransferred < 0)
+        {
+            close();
+            return false;
+        }
+
+        return true;
+    }
+
+    protected boolean isWritable()
+    {
+        return _outbound != null && _outbound.isWritable();
+    }
+
+    protected int getQueuedFrames()
+    {
+        return (_outbound != null) ? _outbound.getFrames() : 0;
+    }
+
+    protected long getQueuedBytes()
+    {
+        return (_outbound != null) ? _outbound.getBytes() : 0;
+    }
+
+    // Refuses only above the high watermark. The frame is queued and never written on the caller's thread:
+    // the event loop drains it, or on a blocking socket the current writer or the shared writer pool does.
+    protected boolean trySend(CSocketSendData data)
+    {
+        if (!isAvailable() || !isWritable() || data.getBuildResult() != CSocketSendDataBuildResult.Successful)
+            return false;
+
+        _outbound.offer(ByteBuffer.wrap(encode(data)), data.getCommand());
+        return true;
+    }
+
+    private void flushStream()
+    {
+        while (!_outbound.isEmpty())
+        {
+            if (!_writeLock.tryAcquire())
+                return;
+
+            try {
+                OutputStream out = _socket.getOutputStream();
+
+                writeQueued(out);
+                out.flush();
+                _outbound.sent();
+            }
+            catch (Exception e) {
+                _metrics.sendFailed();
+                _outbound.clear();
+            }
+            finally {
+                _writeLock.release();
+            }
+        }
+    }
+
+    private void writeQueued(OutputStream out) throws IOException
+    {
+        if (_writeBuffer == null)
+            _writeBuffer = new byte[COALESCE_SIZE];
+
+        int count = 0;
+        ByteBuffer frame;
+
+        while ((frame = _outbound.poll()) != null)
+        {
+            int length = frame.remaining();
+
+            if (count + length > _writeBuffer.length && count > 0)
+            {
+                out.write(_writeBuffer, 0, count);
+                count = 0;
+            }
+
+            if (length >= _writeBuffer.length) {
+                out.write(frame.array(), frame.arrayOffset() + frame.position(), length);
+            }
+            else {
+                frame.get(_writeBuffer, count, length);
+                count += length;
+            }
+        }
+
+        if (count > 0)
+            out.write(_writeBuffer, 0, count);
+    }
+
+    protected CSocketSendDataBuildResult transfer(int command, CSocketDataArgs args)
+    {
+        CSocketSendDataBuildResult result = CSocketSendDataEncoder.validate(command, args);
+
+        if (result != CSocketSendDataBuildResult.Successful || !isAvailable() || _protocol != CSocketProtocolType.Tcp)
+            return result;
+
+        ArrayList<CFileRegion> regions = new ArrayList<CFileRegion>();
+
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            if (args.at(n) instanceof CFileRegion)
+                regions.add((CFileRegion) args.at(n));
+        }
+
+        // The blocking path needs the socket's own channel for transferTo to reach sendfile;
+        // a stream wrapped by Channels.newChannel would copy the file through the heap.
+        if (!regions.isEmpty() && _loop == null && _socket.getChannel() == null)
+            return CSocketSendDataBuildResult.FileRegionNotSupportedError;
+
+        // The checksum and the event-loop body both read the mapping, so a region that cannot be read
+        // is refused before any header byte is queued.
+        for (CFileRegion region : regions)
+        {
+            try {
+                region.map();
+            }
+            catch (Exception e) {
+                return CSocketSendDataBuildResult.FileRegionReadError;
+            }
+        }
+
+        int[] holes = new int[regions.size()];
+        ByteBuffer skeleton = CSocketSendDataEncoder.encodeSkeleton(command, args, holes);
+        long length = skeleton.limit();
+
+        for (CFileRegion region : regions)
+            length += region.getLength();
+
+        if (_loop != null)
+        {
+            // Event-loop writes are non-blocking, so file bodies go through the outbound queue as mapped views.
+            ArrayList<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+            int position = 0;
+
+            for (int n = 0; n < holes.length; n++) 
+            {
+                segments.add(skeleton.slice(position, holes[n] - position));
+                segments.add(regions.get(n).getBuffer());
+                position = holes[n];
+            }
+            segments.add(skeleton.slice(position, skeleton.limit() - position));
+
+            _outbound.addFrame(segments, command);
+            return result;
+        }
+
+        long start = _metrics.isLatencyEnabled() ? System.nanoTime() : 0;
+
+        _writeLock.acquireUninterruptibly();
+
+        try {
+            OutputStream out = _socket.getOutputStream();
+            WritableByteChannel target = _socket.getChannel();
+
+            writeQueued(out);
+
+            int position = 0;
+
+            for (int n = 0; n < holes.length; n++) 
+            {
+                out.write(skeleton.array(), position, holes[n] - position);
+                out.flush();
+                regions.get(n).transferTo(target);
+                position = holes[n];
+            }
+
+            out.write(skeleton.array(), position, skeleton.limit() - position);
+            out.flush();
+
+            _outbound.sent();
+            _metrics.frameSent(command, length);
+
+            if (start != 0)
+                _metrics.recordSend(command, System.nanoTime() - start);
+        }
+        catch (Exception e) {
+            _metrics.sendFailed();
+            _outbound.clear();
+        }
+        finally {
+            _writeLock.release();
+        }
+
+        if (!_outbound.isEmpty())
+            flushStream();
+
+        return result;
+    }
+
+    private void scheduleFlush()
+    {
+        if (_flushScheduled.compareAndSet(false, true))
+        {
+            _loop.execute(() -> {
+                _flushScheduled.set(false);
+                flushChannel();
+            });
+        }
+    }
+
+    void selected(SelectionKey key)
+    {
+        if (key.isValid() && key.isWritable())
+            flushChannel();
+
+        if (key.isValid() && key.isReadable())
+        {
+            int bytesTransferred = 0;
+
+            try {
+                bytesTransferred = _channel.read(_data.getWritableBuffer(READ_SIZE));
+            }
+            catch (Exception e) {
+                bytesTransferred = -1;
+            }
+
+            if (bytesTransferred > 0)
+            {
+                _data.commit(bytesTransferred);
+                _metrics.received(bytesTransferred, _data.getCapacity());
+
+                if (!received(_channelAddress))
+                    setInterest(SelectionKey.OP_READ, false);
+            }
+            else if (bytesTransferred < 0)
+            {
+                setInterest(SelectionKey.OP_READ, false);
+                closed(_channelAddress);
+            }
+        }
+    }
+
+    private void flushChannel()
+    {
+        if (_key == null || !_key.isValid())
+            return;
+
+        try {
+            while (!_outbound.isEmpty())
+            {
+                int count = _outbound.peek(_writeBuffers);
+
+                _channel.write(_writeBuffers, 0, count);
+
+                int written = 0;
+                while (written < count && !_writeBuffers[written].hasRemaining())
+                {
+                    _outbound.poll();
+                    written++;
+                }
+                _outbound.sent();
+                Arrays.fill(_writeBuffers, 0, count, null);
+
+                if (written < count)
+                {
+                    setInterest(SelectionKey.OP_WRITE, true);
+                    return;
+                }
+            }
+        }
+        catch (Exception e) {
+            _metrics.sendFailed();
+            _outbound.clear();
+        }
+
+        setInterest(SelectionKey.OP_WRITE, false);
+    }
+
+    private void setInterest(int ops, boolean enabled)
+    {
+        if (_key != null && _key.isValid())
+        {
+            if (enabled)
+                _key.interestOps(_key.interestOps() | ops);
+            else
+                _key.interestOps(_key.interestOps() & ~ops);
         }
     }  
 
     @Override
     public void run() 
     {    
-        byte[] buffer = new byte[4096];
         CSocketAddress remoteAddress = new CSocketAddress("0.0.0.0", 0);
+        DatagramPacket packet = null;
+
+        if (_protocol == CSocketProtocolType.Tcp)
+            remoteAddress = new CSocketAddress((InetSocketAddress)_socket.getRemoteSocketAddress());
+        else if (_protocol == CSocketProtocolType.Udp && _dgram.getChannel() == null)
+            packet = new DatagramPacket(new byte[0], 0);
 
         while (true) 
         {
@@ -131,70 +861,215 @@ public abstract class CSocket implements Runnable
             if (_protocol == CSocketProtocolType.Tcp)
             {
                 try {
-                    bytesTransferred = _socket.getInputStream().read(buffer);
+                    ByteBuffer buffer = _data.getWritableBuffer(READ_SIZE);
+
+                    if (_socket.getChannel() != null)
+                        bytesTransferred = _socket.getChannel().read(buffer);
+                    else
+                        bytesTransferred = _socket.getInputStream().read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
                 } 
                 catch (Exception e) {}
-
-                remoteAddress = new CSocketAddress((InetSocketAddress)_socket.getRemoteSocketAddress());
             }
             else if (_protocol == CSocketProtocolType.Udp)
             {
                 try {
-                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                    _dgram.receive(packet);
+                    ByteBuffer buffer = _data.getWritableBuffer(DATAGRAM_SIZE);
 
-                    remoteAddress = new CSocketAddress((InetSocketAddress)packet.getSocketAddress());
+                    if (packet == null) 
+                    {
+                        int position = buffer.position();
+                        remoteAddress = _peers.address((InetSocketAddress)_dgram.getChannel().receive(buffer));
+                        bytesTransferred = buffer.position() - position;
+                    }
+                    else 
+                    {
+                        packet.setData(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                        _dgram.receive(packet);
 
-                    bytesTransferred = packet.getLength();
+                        remoteAddress = _peers.address((InetSocketAddress)packet.getSocketAddress());
+                        bytesTransferred = packet.getLength();
+                    }
                 } 
                 catch (Exception e) {}
             }
 
             if (bytesTransferred > 0) 
             {
-                _data.append(buffer, bytesTransferred);
-                
-                while (true) 
+                _data.commit(bytesTransferred);
+                _metrics.received(bytesTransferred, _data.getCapacity());
+
+                if (_protocol == CSocketProtocolType.Udp)
                 {
-                    _result = _data.manipulate();
+                    receivedFrom(remoteAddress);
+                    continue;
+                }
 
-                    if (_result == CSocketDataManipulationResult.Completed)
-                    {
-                        _callback.callMethod(this, new CSocketReceivedData(_data.getCommand(), _data.getArgs(), CSocketReceivedDataResult.Completed, remoteAddress));
-                        continue;
-                    } 
-                    else if (_result == CSocketDataManipulationResult.ParsingError)
-                    {
-                        _callback.callMethod(this, new CSocketReceivedData(0x00, new CSocketDataArgs(), CSocketReceivedDataResult.ParsingError, remoteAddress));
-                        return;
-                    } 
-                    else if (_result == CSocketDataManipulationResult.InProgress)
-                    {
-                        final CSocketAddress paramAddress = remoteAddress;
-                        Thread t = new Thread(() -> {
-                            try {
-                                Thread.sleep(15000);
-                            } 
-                            catch (Exception e) {}
+                if (received(remoteAddress))
+                    continue;
                 
-                            if (_result == CSocketDataManipulationResult.InProgress)
-                                _callback.callMethod(this, new CSocketReceivedData(0x00, new CSocketDataArgs(), CSocketReceivedDataResult.Interrupted, paramAddress));
-                        });
-                        t.start();
-                        break;
-                    } 
-                    else if (_result == CSocketDataManipulationResult.NoData)
-                    {
-                        break;
-                    }
-                }
-                continue;
+                return;
             } 
             else 
             {
-                _callback.callMethod(this, new CSocketReceivedData(0x00, new CSocketDataArgs(), CSocketReceivedDataResult.Closed, remoteAddress));
+                closed(remoteAddress);
                 break;
             }
         }  
     } 
+
+    private boolean received(CSocketAddress remoteAddress)
+    {
+        _result = parse(_data, remoteAddress);
+
+        if (_result == CSocketDataManipulationResult.ParsingError)
+        {
+            _timeout.cancel();
+            dispatch(CSocketReceivedDataResult.ParsingError, remoteAddress);
+            return false;
+        }
+        else if (_result == CSocketDataManipulationResult.InProgress)
+        {
+            _partialAddress = remoteAddress;
+            _timeout.arm(_interruptTimeout);
+        }
+        else if (_result == CSocketDataManipulationResult.NoData)
+        {
+            _timeout.cancel();
+        }
+        return true;
+    }
+
+    // Datagrams are parsed in _data; only peers left with a partial frame keep a parser of their own.
+    private void receivedFrom(CSocketAddress remoteAddress)
+    {
+        CSocketData data = _peers.remove(remoteAddress);
+
+        if (data != null)
+            _data.transfer(data);
+        else
+            data = _data;
+
+        CSocketDataManipulationResult result = parse(data, remoteAddress);
+
+        if (result == CSocketDataManipulationResult.InProgress)
+        {
+            if (data == _data)
+                data = _data.park();
+
+            _peers.put(remoteAddress, data, _interruptTimeout, this::expired);
+            return;
+        }
+
+        if (result == CSocketDataManipulationResult.ParsingError)
+            dispatch(CSocketReceivedDataResult.ParsingError, remoteAddress);
+
+        if (data == _data)
+            data.reset();
+        else
+            data.release();
+    }
+
+    private CSocketDataManipulationResult parse(CSocketData data, CSocketAddress remoteAddress)
+    {
+        while (true)
+        {
+            data.setTimed(_metrics.isLatencyEnabled());
+            CSocketDataManipulationResult result = data.manipulate();
+
+            if (result != CSocketDataManipulationResult.Completed)
+                return result;
+
+            int command = data.getCommand();
+            long start = data.getStarted();
+            long decoded = (start != 0) ? System.nanoTime() : 0;
+
+            _metrics.frameReceived(command);
+
+            if (_frameCallback != null)
+            {
+                CSocketDataReader reader = data.getReader();
+                reader.setRemoteAddress(remoteAddress);
+                _frameCallback.callMethod(this, reader);
+            }
+            else if (data.isColumnArgs())
+                _callback.callMethod(this, new CSocketReceivedData(data.getCommand(), data.getColumnArgs(), CSocketReceivedDataResult.Completed, remoteAddress));
+            else if (_pool != null)
+            {
+                CSocketReceivedData received = _pool.acquire();
+                data.setArgs(received.reset(data.getCommand(), data.getArgs(), CSocketReceivedDataResult.Completed, remoteAddress));
+                _callback.callMethod(this, received);
+                received.release();
+            }
+            else
+                _callback.callMethod(this, new CSocketReceivedData(data.getCommand(), data.getArgs(), CSocketReceivedDataResult.Completed, remoteAddress));
+
+            if (start != 0)
+            {
+                _metrics.recordDecode(command, decoded - start);
+                _metrics.recordCallback(command, System.nanoTime() - decoded);
+            }
+        }
+    }
+
+    private void interrupted()
+    {
+        Runnable task = () -> {
+            if (_result == CSocketDataManipulationResult.InProgress)
+                dispatch(CSocketReceivedDataResult.Interrupted, _partialAddress);
+        };
+
+        if (_loop != null)
+            _loop.execute(task);
+        else
+            NetworkComm.execute(task);
+    }
+
+    private void expired(CSocketAddress remoteAddress, CSocketData data)
+    {
+        dispatch(CSocketReceivedDataResult.Interrupted, remoteAddress);
+        data.release();
+    }
+
+    private void closed(CSocketAddress remoteAddress)
+    {
+        if (!_closed.compareAndSet(false, true))
+            return;
+
+        _timeout.cancel();
+        dispatch(CSocketReceivedDataResult.Closed, remoteAddress);
+        _data.release();
+
+        if (_protocol == CSocketProtocolType.Tcp)
+            close();
+    }
+
+    private void dispatch(CSocketReceivedDataResult result, CSocketAddress remoteAddress)
+    {
+        if (result == CSocketReceivedDataResult.ParsingError)
+            _metrics.parseError();
+        else if (result == CSocketReceivedDataResult.Interrupted)
+            _metrics.interrupted();
+        else if (result == CSocketReceivedDataResult.Closed)
+            _metrics.closed();
+
+        if (_frameCallback != null)
+        {
+            // Status results can come from the timer's thread while the receive thread is reading a frame
+            // through data.getReader(), so they get a reader of their own.
+            CSocketDataReader reader = new CSocketDataReader();
+            reader.reset(result, remoteAddress);
+            _frameCallback.callMethod(this, reader);
+        }
+        else if (_pool != null)
+        {
+            CSocketReceivedData received = _pool.acquire();
+            received.reset(0x00, received.getArgs(), result, remoteAddress);
+            _callback.callMethod(this, received);
+            received.release();
+        }
+        else
+        {
+            _callback.callMethod(this, new CSocketReceivedData(0x00, new CSocketDataArgs(), result, remoteAddress));
+        }
+    }
 }
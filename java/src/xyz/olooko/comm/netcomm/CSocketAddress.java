@@ -2,6 +2,7 @@ package xyz.olooko.comm.netcomm;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.Objects;
 
 public class CSocketAddress
 {
@@ -53,4 +54,20 @@ public class CSocketAddress
     {
 		return String.format("%s:%d", _host, _port);
 	}    
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof CSocketAddress))
+            return false;
+
+        CSocketAddress address = (CSocketAddress)obj;
+        return _port == address._port && Objects.equals(_inetAddress, address._inetAddress);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Objects.hashCode(_inetAddress) + _port;
+    }
 }
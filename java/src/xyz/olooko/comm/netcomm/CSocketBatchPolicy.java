@@ -0,0 +1,33 @@
+package xyz.olooko.comm.netcomm;
+
+public class CSocketBatchPolicy
+{
+    private int _payloadSize;
+    private long _delay;
+
+    public int getPayloadSize() 
+    {
+        return _payloadSize;
+    }
+
+    public long getDelay() 
+    {
+        return _delay;
+    }
+
+    public boolean isImmediate() 
+    {
+        return _payloadSize <= 0 || _delay <= 0;
+    }
+
+    public CSocketBatchPolicy(int payloadSize, long delayMicros)
+    {
+        _payloadSize = Math.min(payloadSize, 65507);
+        _delay = delayMicros;
+    }
+
+    public static CSocketBatchPolicy immediate()
+    {
+        return new CSocketBatchPolicy(0, 0);
+    }
+}
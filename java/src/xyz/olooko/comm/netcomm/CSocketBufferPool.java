@@ -0,0 +1,40 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CSocketBufferPool
+{
+    static final int BUFFER_SIZE = 4096;
+
+    private static final int CAPACITY = 256;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> _free = new ConcurrentLinkedQueue<ByteBuffer>();
+    private static final AtomicInteger _length = new AtomicInteger(0);
+
+    static ByteBuffer acquire()
+    {
+        ByteBuffer buffer = _free.poll();
+
+        if (buffer == null)
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        _length.decrementAndGet();
+        return buffer.clear();
+    }
+
+    static void release(ByteBuffer buffer)
+    {
+        if (!buffer.isDirect() || buffer.capacity() != BUFFER_SIZE)
+            return;
+
+        if (_length.incrementAndGet() > CAPACITY) 
+        {
+            _length.decrementAndGet();
+            return;
+        }
+
+        _free.add(buffer);
+    }
+}
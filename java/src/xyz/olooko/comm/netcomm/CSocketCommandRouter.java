@@ -0,0 +1,125 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class CSocketCommandRouter implements CSocketReceivedCallback
+{
+    private static final int COMMAND_SIZE = 256;
+
+    private AtomicReferenceArray<Route> _routes;
+    private volatile CSocketReceivedCallback _defaultHandler;
+    private Executor _executor;
+
+    public Executor getExecutor()
+    {
+        return _executor;
+    }
+
+    public CSocketReceivedCallback getDefaultHandler()
+    {
+        return _defaultHandler;
+    }
+
+    public void setDefaultHandler(CSocketReceivedCallback handler)
+    {
+        _defaultHandler = handler;
+    }
+
+    /**
+     * Routes registered with {@link CSocketDispatchMode#Executor} run on the shared, bounded
+     * {@link ForkJoinPool#commonPool()}, so a slow handler never stalls the receive thread.
+     */
+    public CSocketCommandRouter()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Routes registered with {@link CSocketDispatchMode#Executor} run on the given executor.
+     */
+    public CSocketCommandRouter(Executor executor)
+    {
+        _routes = new AtomicReferenceArray<Route>(COMMAND_SIZE);
+        _executor = executor;
+    }
+
+    public void register(int command, CSocketReceivedCallback handler)
+    {
+        register(command, handler, CSocketDispatchMode.Inline);
+    }
+
+    public void register(int command, CSocketReceivedCallback handler, CSocketDispatchMode mode)
+    {
+        _routes.set(command & 0xFF, new Route(handler, mode));
+    }
+
+    public void unregister(int command)
+    {
+        _routes.set(command & 0xFF, null);
+    }
+
+    public CSocketReceivedCallback getHandler(int command)
+    {
+        Route route = _routes.get(command & 0xFF);
+        return (route != null) ? route._handler : null;
+    }
+
+    public CSocketDispatchMode getMode(int command)
+    {
+        Route route = _routes.get(command & 0xFF);
+        return (route != null) ? route._mode : null;
+    }
+
+    @Override
+    public void callMethod(CSocket socket, CSocketReceivedData data)
+    {
+        CSocketReceivedCallback handler = null;
+        CSocketDispatchMode mode = CSocketDispatchMode.Inline;
+
+        if (data.getResult() == CSocketReceivedDataResult.Completed)
+        {
+            Route route = _routes.get(data.getCommand());
+
+            if (route != null)
+            {
+                handler = route._handler;
+                mode = route._mode;
+            }
+        }
+
+        if (handler == null)
+        {
+            handler = _defaultHandler;
+            mode = CSocketDispatchMode.Inline;
+        }
+
+        if (handler == null)
+            return;
+
+        if (mode == CSocketDispatchMode.Executor)
+        {
+            CSocketReceivedCallback target = handler;
+            CSocketReceivedData copy = data.copy();
+
+            _executor.execute(() -> target.callMethod(socket, copy));
+        }
+        else
+        {
+            handler.callMethod(socket, data);
+        }
+    }
+
+    private static class Route
+    {
+        CSocketReceivedCallback _handler;
+        CSocketDispatchMode _mode;
+
+        Route(CSocketReceivedCallback handler, CSocketDispatchMode mode)
+        {
+            _handler = handler;
+            _mode = mode;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.zip.Deflater;
+
+public class CSocketCompression
+{
+    static final int MAX_LENGTH = 16 * 1024 * 1024;
+
+    private int _threshold;
+    private int _level;
+    private byte[] _dictionary;
+    private int _maxLength;
+
+    public int getThreshold() 
+    {
+        return _threshold;
+    }
+
+    public int getLevel() 
+    {
+        return _level;
+    }
+
+    public byte[] getDictionary() 
+    {
+        return _dictionary;
+    }
+
+    public int getMaxLength() 
+    {
+        return _maxLength;
+    }
+
+    public CSocketCompression(int threshold)
+    {
+        this(threshold, Deflater.DEFAULT_COMPRESSION, null, MAX_LENGTH);
+    }
+
+    public CSocketCompression(int threshold, int level, byte[] dictionary)
+    {
+        this(threshold, level, dictionary, MAX_LENGTH);
+    }
+
+    public CSocketCompression(int threshold, int level, byte[] dictionary, int maxLength)
+    {
+        _threshold = Math.max(1, threshold);
+        _level = level;
+        _dictionary = dictionary;
+        _maxLength = maxLength;
+    }
+}
@@ -0,0 +1,83 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+public class CSocketCompressor
+{
+    private CSocketCompression _compression;
+    private Deflater _deflater;
+    private byte[] _buffer;
+
+    public CSocketCompression getCompression()
+    {
+        return _compression;
+    }
+
+    public CSocketCompressor(CSocketCompression compression)
+    {
+        _compression = compression;
+        _deflater = new Deflater(compression.getLevel());
+        _buffer = new byte[0];
+    }
+
+    // Returns the frame unchanged when it is already compressed, below the threshold, or does not shrink.
+    public synchronized byte[] compress(byte[] frame)
+    {
+        if (frame == null || frame.length < 3 || _deflater == null)
+            return frame;
+
+        int tag = frame[1] & 0xFF;
+
+        if (CSocketDataTag.KIND[tag] != CSocketDataTag.TEXTLENGTH)
+            return frame;
+
+        int sz = CSocketDataTag.WIDTH[tag];
+        ByteBuffer header = ByteBuffer.wrap(frame, 2, sz);
+        int textlen = (sz == 1) ? header.get() : (sz == 2) ? header.getShort() : header.getInt();
+        int textpos = 2 + sz + 1;
+
+        if (textlen < _compression.getThreshold())
+            return frame;
+
+        if (_buffer.length < textlen)
+            _buffer = new byte[textlen];
+
+        _deflater.reset();
+
+        if (_compression.getDictionary() != null)
+            _deflater.setDictionary(_compression.getDictionary());
+
+        _deflater.setInput(frame, textpos, textlen);
+        _deflater.finish();
+
+        int length = 0;
+
+        while (!_deflater.finished() && length < textlen)
+            length += _deflater.deflate(_buffer, length, textlen - length);
+
+        if (!_deflater.finished() || length >= textlen)
+            return frame;
+
+        //SOH(1)+OTL(v)+STX(1)+TXT(v)+ETX(1)+CHK(1)+EOT(1)
+        ByteBuffer dst = ByteBuffer.allocate(1 + 1 + CSocketSendDataEncoder.getLengthSize(length) + 1 + length + 1 + 1 + 1);
+
+        dst.put((byte)0x01);
+        CSocketSendDataEncoder.putLength(dst, (byte)0x18, length);
+        dst.put((byte)0x02);
+        dst.put(_buffer, 0, length);
+        dst.put((byte)0x03);
+        dst.put(CSocketSendDataEncoder.checksum(_buffer, 0, length));
+        dst.put((byte)0x04);
+
+        return dst.array();
+    }
+
+    public synchronized void close()
+    {
+        if (_deflater != null)
+            _deflater.end();
+
+        _deflater = null;
+    }
+}
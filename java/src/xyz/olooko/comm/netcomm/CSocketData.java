@@ -1,51 +1,304 @@
 package xyz.olooko.comm.netcomm;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 public class CSocketData
 {
+    private static final int INITIAL_CAPACITY = CSocketBufferPool.BUFFER_SIZE;
+    private static final int RETAINED_CAPACITY = 1024 * 1024;
+
     private byte _command;
     private CSocketDataArgs _args;
     private ByteBuffer _data;
+    private boolean _direct;
     private int _datalen;
     private int _datapos;
     private CSocketDataParsingStep _step;
     private byte _checksum;
     private int _textlen;
+    private boolean _zeroCopy;
+    private CSocketDataColumnArgs _columnArgs;
+    private CSocketDataReader _reader;
+
+    private CSocketReceivedStreamCallback _stream;
+    private CSocket _streamSocket;
+    private int _streamThreshold;
+    private int _textpos;
+    private int _argindex;
+    private int _remaining;
+
+    private CSocketCompression _compression;
+    private boolean _compressed;
+    private Inflater _inflater;
+    private ByteBuffer _spare;
+    private long _copied;
+    private boolean _timed;
+    private long _started;
 
     public CSocketDataArgs getArgs()
     {
         return _args;
     }
     
+    void setArgs(CSocketDataArgs args)
+    {
+        _args = args;
+    }
+
     public int getCommand() 
     {
         return _command & 0xFF;
     }
 
+    public CSocketDataColumnArgs getColumnArgs()
+    {
+        return _columnArgs;
+    }
+
+    public boolean isColumnArgs()
+    {
+        return _columnArgs != null;
+    }
+
+    public void setColumnArgs(boolean columnArgs)
+    {
+        _columnArgs = columnArgs ? new CSocketDataColumnArgs() : null;
+    }
+
+    public CSocketDataReader getReader()
+    {
+        return _reader;
+    }
+
+    public boolean isReader()
+    {
+        return _reader != null;
+    }
+
+    public void setReader(boolean reader)
+    {
+        _reader = reader ? new CSocketDataReader() : null;
+    }
+
+    public boolean isStreaming()
+    {
+        return _stream != null;
+    }
+
+    void setStreamCallback(CSocket socket, int threshold, CSocketReceivedStreamCallback callback)
+    {
+        _streamSocket = socket;
+        _streamThreshold = Math.max(1, threshold);
+        _stream = callback;
+    }
+
+    public boolean isZeroCopy()
+    {
+        return _zeroCopy;
+    }
+
+    public void setZeroCopy(boolean zeroCopy)
+    {
+        _zeroCopy = zeroCopy;
+    }
+
+    public boolean isDirect()
+    {
+        return _direct;
+    }
+
+    public int getCapacity()
+    {
+        return _data.capacity();
+    }
+
+    long getCopiedBytes()
+    {
+        return _copied;
+    }
+
+    public CSocketCompression getCompression()
+    {
+        return _compression;
+    }
+
+    public void setCompression(CSocketCompression compression)
+    {
+        _compression = compression;
+    }
+
     public CSocketData()
     {
+        this(false);
+    }
+
+    public CSocketData(boolean direct)
+    {
+        this(direct, INITIAL_CAPACITY);
+    }
+
+    private CSocketData(boolean direct, int capacity)
+    {
+        _direct = direct;
         _command = 0x00;
         _args = new CSocketDataArgs();
-        _data = ByteBuffer.allocate(0);
+        _data = allocate(capacity);
         _datalen = 0;
         _datapos = 0;
         _checksum = 0x00;
         _step = CSocketDataParsingStep.SOH;
         _textlen = 0;
+        _zeroCopy = false;
     }
 
     public void append(byte[] buffer, int bytesTransferred) 
+    {
+        reserve(bytesTransferred);
+
+        _data.put(_datalen, buffer, 0, bytesTransferred);
+        _datalen += bytesTransferred;
+        _copied += bytesTransferred;
+    }
+
+    public ByteBuffer getWritableBuffer(int minimum) 
+    {
+        reserve(minimum);
+
+        _data.limit(_data.capacity());
+        _data.position(_datalen);
+        return _data;
+    }
+
+    public void commit(int bytesTransferred) 
+    {
+        _datalen += bytesTransferred;
+        _data.clear();
+    }
+
+    public void reset() 
+    {
+        _datalen = 0;
+        _datapos = 0;
+        _checksum = 0x00;
+        _step = CSocketDataParsingStep.SOH;
+        _textlen = 0;
+        _compressed = false;
+    }
+
+    void transfer(CSocketData target) 
+    {
+        int unread = _datalen - _datapos;
+
+        target.reserve(unread);
+        target._data.put(target._datalen, _data, _datapos, unread);
+        target._datalen += unread;
+
+        reset();
+    }
+
+    // Moves a partial frame into a heap parser sized to its unread bytes, leaving this one empty,
+    // so a peer that goes quiet mid-frame holds only what it sent rather than a receive buffer.
+    CSocketData park() 
+    {
+        int unread = _datalen - _datapos;
+        CSocketData data = new CSocketData(false, Math.max(1, unread));
+
+        data._zeroCopy = _zeroCopy;
+        data.setColumnArgs(isColumnArgs());
+        data.setReader(isReader());
+        data.setStreamCallback(_streamSocket, _streamThreshold, _stream);
+        data._compression = _compression;
+
+        data._data.put(0, _data, _datapos, unread);
+        data._datalen = unread;
+        data._step = _step;
+        data._checksum = _checksum;
+        data._textlen = _textlen;
+        data._command = _command;
+        data._compressed = _compressed;
+        data._textpos = _textpos;
+        data._argindex = _argindex;
+        data._remaining = _remaining;
+        data._timed = _timed;
+        data._started = _started;
+
+        // Only a streamed frame has args decoded ahead of ETX; views among them point into this buffer.
+        CSocketDataArgs args = data._args;
+        data._args = _args;
+        _args = args;
+
+        for (int n = 0; n < data._args.getLength(); n++)
+            data._args.set(n, CSocketReceivedData.own(data._args.at(n)));
+
+        reset();
+        return data;
+    }
+
+    public void release() 
+    {
+        CSocketBufferPool.release(_data);
+
+        if (_spare != null)
+            CSocketBufferPool.release(_spare);
+
+        if (_inflater != null)
+            _inflater.end();
+
+        _spare = null;
+        _inflater = null;
+
+        _data = ByteBuffer.allocate(0);
+        _datalen = 0;
+        _datapos = 0;
+    }
+
+    private void reserve(int bytesTransferred) 
     {
         if (_data.capacity() < _datalen + bytesTransferred) 
         {
-            _data = ByteBuffer.allocate(_datalen + bytesTransferred).put(_data);
-            _data.position(_datalen);
+            int unread = _datalen - _datapos;
+
+            _data.limit(_datalen);
+            _data.position(_datapos);
+
+            if (_data.capacity() < unread + bytesTransferred) 
+            {
+                ByteBuffer data = allocate(Math.max(_data.capacity() * 2, unread + bytesTransferred));
+                data.put(_data);
+
+                CSocketBufferPool.release(_data);
+                _data = data;
+            }
+            else {
+                _data.compact();
+            }
+
+            _data.clear();
+            _datalen = unread;
+            _datapos = 0;
+            _copied += unread;
         }
+    }
 
-        _data.put(buffer, 0, bytesTransferred);
-        _datalen += bytesTransferred;
+    private ByteBuffer allocate(int capacity) 
+    {
+        if (!_direct)
+            return ByteBuffer.allocate(capacity);
+
+        return (capacity == CSocketBufferPool.BUFFER_SIZE) ? CSocketBufferPool.acquire() : ByteBuffer.allocateDirect(capacity);
+    }
+
+    // The frame's decode time runs from the read that brought its SOH, across every read until it completes.
+    void setTimed(boolean timed)
+    {
+        _timed = timed;
+    }
+
+    long getStarted()
+    {
+        return _started;
     }
 
     public CSocketDataManipulationResult manipulate()
@@ -61,6 +314,7 @@ public class CSocketData
                     {
                         if (_data.get(_datapos) == 0x01) 
                         {
+                            _started = _timed ? System.nanoTime() : 0;
                             _datapos += 1;
                             _step = CSocketDataParsingStep.OTL;
                             continue;
@@ -74,14 +328,22 @@ public class CSocketData
                 case OTL:
                     if (datalen > 0) 
                     {
-                        if (Arrays.asList((byte)0x11, (byte)0x12, (byte)0x14).contains(_data.get(_datapos))) 
+                        int tag = _data.get(_datapos) & 0xFF;
+                        byte kind = CSocketDataTag.KIND[tag];
+
+                        if (kind == CSocketDataTag.TEXTLENGTH || kind == CSocketDataTag.COMPRESSED) 
                         {
-                            CSocketDataArgLength a = getArgLength(datalen);
+                            int sz = CSocketDataTag.WIDTH[tag];
 
-                            if (a.getArgL() >= 0) 
+                            if (datalen > sz) 
                             {
-                                _textlen = a.getArgL();
-                                _datapos += 1 + a.getSize();
+                                _textlen = getLength(_datapos + 1, sz);
+
+                                if (_textlen < 1)
+                                    return CSocketDataManipulationResult.ParsingError;
+
+                                _datapos += 1 + sz;
+                                _compressed = (kind == CSocketDataTag.COMPRESSED);
                                 _step = CSocketDataParsingStep.STX;
                                 continue;
                             }
@@ -98,7 +360,9 @@ public class CSocketData
                         if (_data.get(_datapos) == 0x02) 
                         {
                             _datapos += 1;
-                            _step = CSocketDataParsingStep.ETX;
+                            _step = (_stream != null && !_compressed) ? CSocketDataParsingStep.TXT : CSocketDataParsingStep.ETX;
+                            _textpos = 0;
+                            _remaining = 0;
                             continue;
                         } 
                         else {
@@ -107,81 +371,173 @@ public class CSocketData
                     }
                     break;
 
+                case TXT:
+                    if (datalen > 0) 
+                    {
+                        CSocketDataManipulationResult result = stream();
+
+                        if (result == CSocketDataManipulationResult.ParsingError)
+                            return result;
+
+                        if (result == CSocketDataManipulationResult.Completed)
+                            continue;
+                    }
+                    break;
+
                 case ETX:
-                    if (datalen > _textlen) 
+                    if (_compressed) 
+                    {
+                        if (datalen <= _textlen + 2)
+                            break;
+
+                        if (_data.get(_datapos + _textlen) != 0x03 || !inflate())
+                            return CSocketDataManipulationResult.ParsingError;
+
+                        _compressed = false;
+                        continue;
+                    }
+
+                    // Decode only once CHK and EOT are buffered too, so no read can compact or
+                    // regrow the buffer under zero-copy views before the callback sees them.
+                    if (datalen > _textlen + 2) 
                     {
                         if (_data.get(_datapos + _textlen) == 0x03) 
                         {
                             int textfpos = _datapos;
                             
                             _command = _data.get(textfpos);
-                            _args.clear();
+                            CSocketDataReader reader = _reader;
+                            CSocketDataColumnArgs columns = _columnArgs;
+
+                            if (reader != null)
+                                columns = null;
+                            else if (columns != null)
+                                columns.reset(_data);
+                            else
+                                _args.clear();
+
                             _datapos += 1;
 
-                            while (_datapos < _textlen + textfpos) 
+                            int textlpos = textfpos + _textlen;
+
+                            while (_datapos < textlpos) 
                             {
-                                int sz = 0;
-                                int argL = 0;
+                                int tag = _data.get(_datapos) & 0xFF;
+                                int sz = CSocketDataTag.WIDTH[tag];
+                                int argpos = _datapos + 1 + sz;
+
+                                if (argpos > textlpos)
+                                    return CSocketDataManipulationResult.ParsingError;
 
-                                if (Arrays.asList((byte)0x31, (byte)0x32, (byte)0x34, (byte)0x38).contains(_data.get(_datapos))) 
+                                switch (CSocketDataTag.KIND[tag]) 
                                 {
-                                    sz = (int)(_data.get(_datapos) & 0x0F);
-                                    long i = 0;
-                                    switch (sz) 
+                                    case CSocketDataTag.INTEGER: 
                                     {
-                                        case 1: i = (long)_data.get(_datapos + 1); break;
-                                        case 2: i = (long)_data.getShort(_datapos + 1); break;
-                                        case 4: i = (long)_data.getInt(_datapos + 1); break;
-                                        case 8: i = (long)_data.getLong(_datapos + 1); break;
+                                        if (reader != null)
+                                            break;
+
+                                        long i = 0;
+                                        switch (sz) 
+                                        {
+                                            case 1: i = _data.get(_datapos + 1); break;
+                                            case 2: i = _data.getShort(_datapos + 1); break;
+                                            case 4: i = _data.getInt(_datapos + 1); break;
+                                            case 8: i = _data.getLong(_datapos + 1); break;
+                                        }
+                                        if (columns != null)
+                                            columns.addLong(i);
+                                        else
+                                            _args.add(new CInteger(i));
+                                        break;
                                     }
-                                    _args.add(new CInteger(i));
-                                } 
-                                else if (Arrays.asList((byte)0x54, (byte)0x58).contains(_data.get(_datapos))) 
-                                {
-                                    sz = (int)(_data.get(_datapos) & 0x0F);
-                                    double f = 0.0;
-                                    switch (sz) 
+                                    case CSocketDataTag.FLOAT: 
                                     {
-                                        case 4: f = (double)_data.getFloat(_datapos + 1); break;
-                                        case 8: f = _data.getDouble(_datapos + 1); break;
+                                        if (reader != null)
+                                            break;
+
+                                        double f = (sz == 4) ? _data.getFloat(_datapos + 1) : _data.getDouble(_datapos + 1);
+                                        if (columns != null)
+                                            columns.addDouble(f);
+                                        else
+                                            _args.add(new CFloat(f));
+                                        break;
                                     }
-                                    _args.add(new CFloat(f));
-                                } 
-                                else if (Arrays.asList((byte)0x71).contains(_data.get(_datapos))) 
-                                {
-                                    sz = 1;
-                                    _args.add(new CBoolean((_data.get(_datapos + 1) == 0) ? false : true));
-                                } 
-                                else if (Arrays.asList((byte)0x91, (byte)0x92, (byte)0x94).contains(_data.get(_datapos)))
-                                {
-                                    CSocketDataArgLength a = getArgLength(datalen);
-                                    sz = a.getSize();
-                                    argL = a.getArgL();
-
-                                    _args.add(new CString(new String(_data.array(), _datapos + 1 + sz, argL)));
-                                    _datapos += argL;                                   
-                                } 
-                                else if (Arrays.asList((byte)0xB1, (byte)0xB2, (byte)0xB4).contains(_data.get(_datapos))) 
-                                {
-                                    CSocketDataArgLength a = getArgLength(datalen);
-                                    sz = a.getSize();
-                                    argL = a.getArgL();
+                                    case CSocketDataTag.BOOLEAN: 
+                                    {
+                                        if (reader != null)
+                                            break;
 
-                                    byte[] ba = new byte[argL];
-                                    System.arraycopy(_data.array(), _datapos + 1 + sz, ba, 0, argL);
+                                        if (columns != null)
+                                            columns.addBoolean(_data.get(_datapos + 1) != 0);
+                                        else
+                                            _args.add(new CBoolean((_data.get(_datapos + 1) == 0) ? false : true));
+                                        break;
+                                    }
+                                    case CSocketDataTag.STRING: 
+                                    {
+                                        int argL = getLength(_datapos + 1, sz);
 
-                                    _args.add(new CByteArray(ba));
-                                    _datapos += argL;
-                                    
-                                } else {
-                                    return CSocketDataManipulationResult.ParsingError;
+                                        if (argL < 0 || argpos + argL > textlpos)
+                                            return CSocketDataManipulationResult.ParsingError;
+
+                                        if (reader != null) 
+                                        {
+                                            argpos += argL;
+                                            break;
+                                        }
+
+                                        if (columns != null)
+                                            columns.addView(CSocketDataTag.STRING, argpos, argL);
+                                        else if (_zeroCopy)
+                                            _args.add(new CString(_data.slice(argpos, argL)));
+                                        else
+                                            _args.add(new CString(getString(argpos, argL)));
+
+                                        argpos += argL;
+                                        break;
+                                    }
+                                    case CSocketDataTag.BYTEARRAY: 
+                                    {
+                                        int argL = getLength(_datapos + 1, sz);
+
+                                        if (argL < 0 || argpos + argL > textlpos)
+                                            return CSocketDataManipulationResult.ParsingError;
+
+                                        if (reader != null) 
+                                        {
+                                            argpos += argL;
+                                            break;
+                                        }
+
+                                        if (columns != null) 
+                                        {
+                                            columns.addView(CSocketDataTag.BYTEARRAY, argpos, argL);
+                                        }
+                                        else if (_zeroCopy) 
+                                        {
+                                            _args.add(new CByteArray(_data.slice(argpos, argL)));
+                                        }
+                                        else 
+                                        {
+                                            byte[] ba = new byte[argL];
+                                            _data.get(argpos, ba);
+
+                                            _args.add(new CByteArray(ba));
+                                        }
+
+                                        argpos += argL;
+                                        break;
+                                    }
+                                    default:
+                                        return CSocketDataManipulationResult.ParsingError;
                                 }
-                                _datapos += 1 + sz;
+                                _datapos = argpos;
                             }
 
-                            _checksum = 0x00;
-                            for (int i = textfpos; i < textfpos + _textlen; i++)
-                                _checksum ^= _data.get(i);
+                            if (reader != null)
+                                reader.reset(_data, _command, textfpos + 1, textlpos);
+
+                            _checksum = CSocketSendDataEncoder.checksum(_data, textfpos, _textlen);
 
                             _datapos += 1;
                             _step = CSocketDataParsingStep.CHK;
@@ -214,11 +570,19 @@ public class CSocketData
                         if (_data.get(_datapos) == 0x04) 
                         {
                             _datapos += 1;
-                            _datalen -= _datapos;
 
-                            _data = ByteBuffer.allocate(_datalen).put(_data.array(), _datapos, _datalen);
+                            if (_datapos == _datalen) 
+                            {
+                                if (_data.capacity() > RETAINED_CAPACITY)
+                                    _data = allocate(INITIAL_CAPACITY);
+
+                                if (_spare != null && _spare.capacity() > RETAINED_CAPACITY)
+                                    _spare = null;
+
+                                _datalen = 0;
+                                _datapos = 0;
+                            }
 
-                            _datapos = 0;
                             _checksum = 0x00;
                             _step = CSocketDataParsingStep.SOH;
                             _textlen = 0;
@@ -232,7 +596,7 @@ public class CSocketData
                     break;
             }
 
-            if (_datalen == 0) {
+            if (_datalen == _datapos && _step == CSocketDataParsingStep.SOH) {
                 return CSocketDataManipulationResult.NoData;
             }
 
@@ -240,21 +604,236 @@ public class CSocketData
         }
     }
 
-    private CSocketDataArgLength getArgLength(int datalen)
+    // Walks the frame text as it arrives: byte arrays of at least the stream threshold are handed
+    // to the stream callback chunk by chunk and consumed, everything else is decoded once complete.
+    private CSocketDataManipulationResult stream()
     {
-        int sz = (int)(_data.get(_datapos) & 0x0F);
-        int argL = -1;
+        while (true)
+        {
+            int datalen = _datalen - _datapos;
+
+            if (_remaining > 0)
+            {
+                if (datalen == 0)
+                    return CSocketDataManipulationResult.InProgress;
+
+                int length = Math.min(datalen, _remaining);
+
+                _checksum ^= CSocketSendDataEncoder.checksum(_data, _datapos, length);
+                _stream.onChunk(_streamSocket, _data.slice(_datapos, length).asReadOnlyBuffer());
+
+                _datapos += length;
+                _textpos += length;
+                _remaining -= length;
+
+                if (_remaining == 0)
+                    _stream.onArgEnd(_streamSocket);
+
+                continue;
+            }
+
+            if (datalen == 0)
+                return CSocketDataManipulationResult.InProgress;
+
+            if (_textpos == 0)
+            {
+                _command = _data.get(_datapos);
+                _checksum = _command;
+                _args.clear();
+                _argindex = 0;
+
+                _datapos += 1;
+                _textpos = 1;
+                continue;
+            }
 
-        if (datalen > sz) 
+            if (_textpos == _textlen)
+            {
+                if (_data.get(_datapos) != 0x03)
+                    return CSocketDataManipulationResult.ParsingError;
+
+                _datapos += 1;
+                _step = CSocketDataParsingStep.CHK;
+                return CSocketDataManipulationResult.Completed;
+            }
+
+            int tag = _data.get(_datapos) & 0xFF;
+            byte kind = CSocketDataTag.KIND[tag];
+            int sz = CSocketDataTag.WIDTH[tag];
+
+            if (kind == CSocketDataTag.NONE || kind == CSocketDataTag.TEXTLENGTH || kind == CSocketDataTag.COMPRESSED)
+                return CSocketDataManipulationResult.ParsingError;
+
+            if (datalen < 1 + sz)
+                return CSocketDataManipulationResult.InProgress;
+
+            int argL = 0;
+
+            if (kind == CSocketDataTag.STRING || kind == CSocketDataTag.BYTEARRAY)
+                argL = getLength(_datapos + 1, sz);
+
+            if (argL < 0 || _textpos + 1 + sz + argL > _textlen)
+                return CSocketDataManipulationResult.ParsingError;
+
+            if (kind == CSocketDataTag.BYTEARRAY && argL >= _streamThreshold)
+            {
+                _checksum ^= CSocketSendDataEncoder.checksum(_data, _datapos, 1 + sz);
+                _args.add(new CByteArray(new byte[0]));
+                _stream.onArgStart(_streamSocket, _command & 0xFF, _argindex++, argL);
+
+                _datapos += 1 + sz;
+                _textpos += 1 + sz;
+                _remaining = argL;
+                continue;
+            }
+
+            if (datalen < 1 + sz + argL)
+                return CSocketDataManipulationResult.InProgress;
+
+            _checksum ^= CSocketSendDataEncoder.checksum(_data, _datapos, 1 + sz + argL);
+            _args.add(getArg(kind, sz, _datapos + 1, argL));
+            _argindex++;
+
+            _datapos += 1 + sz + argL;
+            _textpos += 1 + sz + argL;
+        }
+    }
+
+    // Swaps the compressed frame for its inflated text, followed by ETX, a checksum over the inflated
+    // text and whatever was buffered after the frame, so the ETX step decodes it like any other frame.
+    private boolean inflate()
+    {
+        int textfpos = _datapos;
+        int tail = textfpos + _textlen + 2;
+
+        if (CSocketSendDataEncoder.checksum(_data, textfpos, _textlen) != _data.get(tail - 1))
+            return false;
+
+        int maxLength = (_compression != null) ? _compression.getMaxLength() : CSocketCompression.MAX_LENGTH;
+        byte[] dictionary = (_compression != null) ? _compression.getDictionary() : null;
+
+        if (_inflater == null)
+            _inflater = new Inflater();
+
+        ByteBuffer text = (_spare != null) ? _spare : allocate(INITIAL_CAPACITY);
+        text.clear();
+
+        _spare = null;
+        _inflater.reset();
+        _inflater.setInput(_data.slice(textfpos, _textlen));
+
+        try {
+            while (!_inflater.finished())
+            {
+                if (_inflater.needsDictionary())
+                {
+                    if (dictionary == null)
+                        return false;
+
+                    _inflater.setDictionary(dictionary);
+                    continue;
+                }
+
+                if (!text.hasRemaining())
+                {
+                    if (text.position() >= maxLength)
+                        return false;
+
+                    text = grow(text, text.capacity());
+                }
+
+                if (_inflater.inflate(text) == 0 && _inflater.needsInput())
+                    return false;
+            }
+        }
+        catch (DataFormatException e) {
+            return false;
+        }
+        finally {
+            if (_spare == null)
+                _spare = text;
+        }
+
+        int textlen = text.position();
+        int unread = _datalen - tail;
+
+        if (textlen > maxLength)
+            return false;
+
+        if (text.remaining() < 2 + unread)
+            text = grow(text, 2 + unread);
+
+        text.put((byte)0x03);
+        text.put(CSocketSendDataEncoder.checksum(text, 0, textlen));
+        text.put(_data.slice(tail, unread));
+        text.clear();
+
+        _spare = _data;
+        _data = text;
+        _datalen = textlen + 2 + unread;
+        _datapos = 0;
+        _textlen = textlen;
+        return true;
+    }
+
+    private ByteBuffer grow(ByteBuffer buffer, int minimum)
+    {
+        ByteBuffer grown = allocate(Math.max(buffer.capacity() * 2, buffer.position() + minimum));
+
+        buffer.flip();
+        grown.put(buffer);
+
+        CSocketBufferPool.release(buffer);
+        return grown;
+    }
+
+    private IDataType getArg(byte kind, int sz, int index, int length)
+    {
+        switch (kind) 
         {
-            switch (sz) 
+            case CSocketDataTag.INTEGER: 
+            {
+                switch (sz) 
+                {
+                    case 1: return new CInteger(_data.get(index));
+                    case 2: return new CInteger(_data.getShort(index));
+                    case 4: return new CInteger(_data.getInt(index));
+                    default: return new CInteger(_data.getLong(index));
+                }
+            }
+            case CSocketDataTag.FLOAT: 
+                return new CFloat((sz == 4) ? _data.getFloat(index) : _data.getDouble(index));
+            case CSocketDataTag.BOOLEAN: 
+                return new CBoolean(_data.get(index) != 0);
+            case CSocketDataTag.STRING: 
+                return new CString(getString(index + sz, length));
+            default: 
             {
-                case 1: argL = (int)_data.get(_datapos + 1); break;
-                case 2: argL = (int)_data.getShort(_datapos + 1); break;
-                case 4: argL = (int)_data.getInt(_datapos + 1); break;
+                byte[] ba = new byte[length];
+                _data.get(index + sz, ba);
+                return new CByteArray(ba);
             }
         }
-        return new CSocketDataArgLength(sz, argL);
+    }
+
+    private String getString(int index, int length)
+    {
+        if (_data.hasArray())
+            return new String(_data.array(), _data.arrayOffset() + index, length);
+
+        byte[] s = new byte[length];
+        _data.get(index, s);
+        return new String(s);
+    }
+
+    private int getLength(int index, int sz)
+    {
+        switch (sz) 
+        {
+            case 1: return _data.get(index);
+            case 2: return _data.getShort(index);
+            case 4: return _data.getInt(index);
+        }
+        return -1;
     }    
 }
-
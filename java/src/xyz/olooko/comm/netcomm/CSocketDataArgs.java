@@ -22,6 +22,10 @@ public class CSocketDataArgs
         return _list.get(index);
     }
 
+    void set(int index, IDataType valueType) {
+        _list.set(index, valueType);
+    }
+
     public void clear() {
         _list.clear();
     }  
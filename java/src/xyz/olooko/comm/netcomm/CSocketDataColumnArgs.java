@@ -0,0 +1,262 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public class CSocketDataColumnArgs
+{
+    private int _length;
+    private byte[] _types;
+    private long[] _longs;
+    private double[] _doubles;
+    private int[] _offsets;
+    private int[] _lengths;
+
+    private byte[] _blob;
+    private int _bloblen;
+    private ByteBuffer _source;
+
+    public int getLength() 
+    {
+        return _length;
+    }
+
+    public CSocketDataColumnArgs() 
+    {
+        this(16);
+    }
+
+    public CSocketDataColumnArgs(int capacity) 
+    {
+        capacity = Math.max(1, capacity);
+
+        _types = new byte[capacity];
+        _longs = new long[capacity];
+        _doubles = new double[capacity];
+        _offsets = new int[capacity];
+        _lengths = new int[capacity];
+        _blob = new byte[256];
+    }
+
+    public DataType getType(int index) 
+    {
+        switch (_types[index]) 
+        {
+            case CSocketDataTag.INTEGER: return DataType.CInteger;
+            case CSocketDataTag.FLOAT: return DataType.CFloat;
+            case CSocketDataTag.BOOLEAN: return DataType.CBoolean;
+            case CSocketDataTag.STRING: return DataType.CString;
+            default: return DataType.CByteArray;
+        }
+    }
+
+    // Numeric accessors convert between integer and float columns; strings and byte arrays read as 0.
+    public long getLong(int index) 
+    {
+        return (_types[index] == CSocketDataTag.FLOAT) ? (long)_doubles[index] : _longs[index];
+    }
+
+    public double getDouble(int index) 
+    {
+        return (_types[index] == CSocketDataTag.FLOAT) ? _doubles[index] : (double)_longs[index];
+    }
+
+    public boolean getBoolean(int index) 
+    {
+        return getLong(index) != 0;
+    }
+
+    public String getString(int index) 
+    {
+        return Charset.defaultCharset().decode(getBuffer(index)).toString();
+    }
+
+    public byte[] getBytes(int index) 
+    {
+        byte[] value = new byte[_lengths[index]];
+        getBuffer(index).get(value);
+        return value;
+    }
+
+    public int getBytes(int index, ByteBuffer dst) 
+    {
+        ByteBuffer src = getBuffer(index);
+        int length = Math.min(src.remaining(), dst.remaining());
+
+        dst.put(src.limit(src.position() + length));
+        return length;
+    }
+
+    public int getBytesLength(int index) 
+    {
+        return _lengths[index];
+    }
+
+    public ByteBuffer getBuffer(int index) 
+    {
+        if (_source != null)
+            return _source.slice(_offsets[index], _lengths[index]).asReadOnlyBuffer();
+
+        return ByteBuffer.wrap(_blob, _offsets[index], _lengths[index]).slice().asReadOnlyBuffer();
+    }
+
+    public void addLong(long value) 
+    {
+        add(CSocketDataTag.INTEGER);
+        _longs[_length++] = value;
+    }
+
+    public void addDouble(double value) 
+    {
+        add(CSocketDataTag.FLOAT);
+        _doubles[_length++] = value;
+    }
+
+    public void addBoolean(boolean value) 
+    {
+        add(CSocketDataTag.BOOLEAN);
+        _longs[_length++] = value ? 1 : 0;
+    }
+
+    public void addString(String value) 
+    {
+        byte[] s = value.getBytes();
+        addBlob(CSocketDataTag.STRING, s, 0, s.length);
+    }
+
+    public void addBytes(byte[] value) 
+    {
+        addBlob(CSocketDataTag.BYTEARRAY, value, 0, value.length);
+    }
+
+    public void addBytes(byte[] value, int offset, int length) 
+    {
+        addBlob(CSocketDataTag.BYTEARRAY, value, offset, length);
+    }
+
+    public void clear() 
+    {
+        _length = 0;
+        _bloblen = 0;
+        _source = null;
+    }
+
+    public CSocketDataColumnArgs copy() 
+    {
+        CSocketDataColumnArgs args = new CSocketDataColumnArgs(_length);
+
+        for (int n = 0; n < _length; n++) 
+        {
+            switch (_types[n]) 
+            {
+                case CSocketDataTag.FLOAT: args.addDouble(_doubles[n]); break;
+                case CSocketDataTag.STRING: 
+                case CSocketDataTag.BYTEARRAY: 
+                {
+                    byte[] value = getBytes(n);
+                    args.addBlob(_types[n], value, 0, value.length);
+                    break;
+                }
+                default: 
+                    args.add(_types[n]);
+                    args._longs[args._length++] = _longs[n];
+                    break;
+            }
+        }
+        return args;
+    }
+
+    public CSocketDataArgs toArgs() 
+    {
+        CSocketDataArgs args = new CSocketDataArgs();
+
+        for (int n = 0; n < _length; n++) 
+        {
+            switch (_types[n]) 
+            {
+                case CSocketDataTag.INTEGER: args.add(new CInteger(_longs[n])); break;
+                case CSocketDataTag.FLOAT: args.add(new CFloat(_doubles[n])); break;
+                case CSocketDataTag.BOOLEAN: args.add(new CBoolean(_longs[n] != 0)); break;
+                case CSocketDataTag.STRING: args.add(new CString(getString(n))); break;
+                default: args.add(new CByteArray(getBytes(n))); break;
+            }
+        }
+        return args;
+    }
+
+    byte getKind(int index) 
+    {
+        return _types[index];
+    }
+
+    // Decoded strings and byte arrays are offsets into the receive buffer until the callback returns.
+    void reset(ByteBuffer source) 
+    {
+        clear();
+        _source = source;
+    }
+
+    void addView(byte kind, int offset, int length) 
+    {
+        add(kind);
+        _offsets[_length] = offset;
+        _lengths[_length] = length;
+        _length++;
+    }
+
+    private void addBlob(byte kind, byte[] value, int offset, int length) 
+    {
+        if (_source != null) 
+            own();
+
+        if (_blob.length < _bloblen + length)
+            _blob = Arrays.copyOf(_blob, Math.max(_blob.length * 2, _bloblen + length));
+
+        System.arraycopy(value, offset, _blob, _bloblen, length);
+
+        add(kind);
+        _offsets[_length] = _bloblen;
+        _lengths[_length] = length;
+        _length++;
+
+        _bloblen += length;
+    }
+
+    private void own() 
+    {
+        ByteBuffer source = _source;
+        _source = null;
+        _bloblen = 0;
+
+        for (int n = 0; n < _length; n++) 
+        {
+            if (_types[n] == CSocketDataTag.STRING || _types[n] == CSocketDataTag.BYTEARRAY) 
+            {
+                int length = _lengths[n];
+
+                if (_blob.length < _bloblen + length)
+                    _blob = Arrays.copyOf(_blob, Math.max(_blob.length * 2, _bloblen + length));
+
+                source.get(_offsets[n], _blob, _bloblen, length);
+                _offsets[n] = _bloblen;
+                _bloblen += length;
+            }
+        }
+    }
+
+    private void add(byte kind) 
+    {
+        if (_length == _types.length) 
+        {
+            int capacity = _types.length * 2;
+
+            _types = Arrays.copyOf(_types, capacity);
+            _longs = Arrays.copyOf(_longs, capacity);
+            _doubles = Arrays.copyOf(_doubles, capacity);
+            _offsets = Arrays.copyOf(_offsets, capacity);
+            _lengths = Arrays.copyOf(_lengths, capacity);
+        }
+        _types[_length] = kind;
+    }
+}
@@ -2,5 +2,5 @@ package xyz.olooko.comm.netcomm;
 
 public enum CSocketDataParsingStep
 {
-    SOH, OTL, STX, ETX, CHK, EOT
+    SOH, OTL, STX, TXT, ETX, CHK, EOT
 }
@@ -0,0 +1,288 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+public class CSocketDataReader
+{
+    private byte _command;
+    private CSocketReceivedDataResult _result;
+    private CSocketAddress _address;
+
+    private ByteBuffer _data;
+    private ByteBuffer _view;
+    private int _position;
+    private int _limit;
+
+    private CharsetDecoder _decoder;
+    private CharBuffer _chars;
+
+    public int getCommand() 
+    {
+        return _command & 0xFF;
+    }
+
+    public CSocketAddress getRemoteAddress()
+    {
+        return _address;
+    }
+
+    public CSocketReceivedDataResult getResult()
+    {
+        return _result;
+    }
+
+    public CSocketDataReader()
+    {
+        _command = 0x00;
+        _result = CSocketReceivedDataResult.Completed;
+        _decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        _chars = CharBuffer.allocate(256);
+    }
+
+    public boolean hasNext()
+    {
+        return _position < _limit;
+    }
+
+    public DataType nextType()
+    {
+        if (!hasNext())
+            return null;
+
+        switch (CSocketDataTag.KIND[_data.get(_position) & 0xFF]) 
+        {
+            case CSocketDataTag.INTEGER: return DataType.CInteger;
+            case CSocketDataTag.FLOAT: return DataType.CFloat;
+            case CSocketDataTag.BOOLEAN: return DataType.CBoolean;
+            case CSocketDataTag.STRING: return DataType.CString;
+            default: return DataType.CByteArray;
+        }
+    }
+
+    public int nextLength()
+    {
+        if (!hasNext())
+            return 0;
+
+        int tag = _data.get(_position) & 0xFF;
+        int sz = CSocketDataTag.WIDTH[tag];
+
+        switch (CSocketDataTag.KIND[tag]) 
+        {
+            case CSocketDataTag.STRING:
+            case CSocketDataTag.BYTEARRAY:
+                return getLength(_position + 1, sz);
+            default:
+                return sz;
+        }
+    }
+
+    public long readLong()
+    {
+        if (!hasNext())
+            return 0;
+
+        int tag = _data.get(_position) & 0xFF;
+        int sz = CSocketDataTag.WIDTH[tag];
+        int pos = _position + 1;
+        long i = 0;
+
+        switch (CSocketDataTag.KIND[tag]) 
+        {
+            case CSocketDataTag.INTEGER:
+            {
+                switch (sz) 
+                {
+                    case 1: i = _data.get(pos); break;
+                    case 2: i = _data.getShort(pos); break;
+                    case 4: i = _data.getInt(pos); break;
+                    case 8: i = _data.getLong(pos); break;
+                }
+                break;
+            }
+            case CSocketDataTag.FLOAT:
+                i = (long)((sz == 4) ? _data.getFloat(pos) : _data.getDouble(pos));
+                break;
+            case CSocketDataTag.BOOLEAN:
+                i = (_data.get(pos) == 0) ? 0 : 1;
+                break;
+        }
+
+        skip();
+        return i;
+    }
+
+    public double readDouble()
+    {
+        if (!hasNext())
+            return 0;
+
+        int tag = _data.get(_position) & 0xFF;
+
+        if (CSocketDataTag.KIND[tag] != CSocketDataTag.FLOAT)
+            return readLong();
+
+        int pos = _position + 1;
+        double f = (CSocketDataTag.WIDTH[tag] == 4) ? _data.getFloat(pos) : _data.getDouble(pos);
+
+        skip();
+        return f;
+    }
+
+    public boolean readBoolean()
+    {
+        return readLong() != 0;
+    }
+
+    public int readString(CharBuffer dst)
+    {
+        ByteBuffer src = readView();
+
+        if (src == null)
+            return 0;
+
+        int position = dst.position();
+
+        _decoder.reset();
+        _decoder.decode(src, dst, true);
+        _decoder.flush(dst);
+
+        return dst.position() - position;
+    }
+
+    public int readString(StringBuilder dst)
+    {
+        ByteBuffer src = readView();
+
+        if (src == null)
+            return 0;
+
+        int length = dst.length();
+
+        _decoder.reset();
+
+        boolean overflow = true;
+
+        while (overflow)
+        {
+            _chars.clear();
+            overflow = _decoder.decode(src, _chars, true).isOverflow();
+            _chars.flip();
+            dst.append(_chars);
+        }
+
+        _chars.clear();
+        _decoder.flush(_chars);
+        _chars.flip();
+        dst.append(_chars);
+
+        return dst.length() - length;
+    }
+
+    public int readBytes(ByteBuffer dst)
+    {
+        ByteBuffer src = readView();
+
+        if (src == null)
+            return 0;
+
+        int length = src.remaining();
+
+        if (length > dst.remaining())
+            src.limit(src.position() + dst.remaining());
+
+        dst.put(src);
+        return length;
+    }
+
+    public void skip()
+    {
+        if (!hasNext())
+            return;
+
+        int tag = _data.get(_position) & 0xFF;
+        int sz = CSocketDataTag.WIDTH[tag];
+
+        switch (CSocketDataTag.KIND[tag]) 
+        {
+            case CSocketDataTag.STRING:
+            case CSocketDataTag.BYTEARRAY:
+                _position += 1 + sz + getLength(_position + 1, sz);
+                break;
+            default:
+                _position += 1 + sz;
+                break;
+        }
+    }
+
+    void reset(ByteBuffer data, byte command, int position, int limit)
+    {
+        if (_data != data) 
+        {
+            _data = data;
+            _view = data.duplicate();
+        }
+
+        _command = command;
+        _result = CSocketReceivedDataResult.Completed;
+        _position = position;
+        _limit = limit;
+    }
+
+    void reset(CSocketReceivedDataResult result, CSocketAddress address)
+    {
+        _command = 0x00;
+        _result = result;
+        _address = address;
+        _position = 0;
+        _limit = 0;
+    }
+
+    void setRemoteAddress(CSocketAddress address)
+    {
+        _address = address;
+    }
+
+    private ByteBuffer readView()
+    {
+        if (!hasNext())
+            return null;
+
+        int tag = _data.get(_position) & 0xFF;
+        int kind = CSocketDataTag.KIND[tag];
+
+        if (kind != CSocketDataTag.STRING && kind != CSocketDataTag.BYTEARRAY) 
+        {
+            skip();
+            return null;
+        }
+
+        int sz = CSocketDataTag.WIDTH[tag];
+        int pos = _position + 1 + sz;
+        int length = getLength(_position + 1, sz);
+
+        _view.clear();
+        _view.position(pos);
+        _view.limit(pos + length);
+
+        _position = pos + length;
+        return _view;
+    }
+
+    private int getLength(int index, int sz)
+    {
+        switch (sz) 
+        {
+            case 1: return _data.get(index);
+            case 2: return _data.getShort(index);
+            case 4: return _data.getInt(index);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,53 @@
+package xyz.olooko.comm.netcomm;
+
+class CSocketDataTag
+{
+    static final byte NONE = 0;
+    static final byte INTEGER = 1;
+    static final byte FLOAT = 2;
+    static final byte BOOLEAN = 3;
+    static final byte STRING = 4;
+    static final byte BYTEARRAY = 5;
+    static final byte TEXTLENGTH = 6;
+    static final byte COMPRESSED = 7;
+
+    // Indexed by the unsigned tag byte: the argument kind and either the value width
+    // (INTEGER, FLOAT, BOOLEAN) or the length-prefix width (STRING, BYTEARRAY, TEXTLENGTH, COMPRESSED).
+    static final byte[] KIND = new byte[256];
+    static final byte[] WIDTH = new byte[256];
+
+    static 
+    {
+        define(0x11, TEXTLENGTH, 1);
+        define(0x12, TEXTLENGTH, 2);
+        define(0x14, TEXTLENGTH, 4);
+
+        define(0x19, COMPRESSED, 1);
+        define(0x1A, COMPRESSED, 2);
+        define(0x1C, COMPRESSED, 4);
+
+        define(0x31, INTEGER, 1);
+        define(0x32, INTEGER, 2);
+        define(0x34, INTEGER, 4);
+        define(0x38, INTEGER, 8);
+
+        define(0x54, FLOAT, 4);
+        define(0x58, FLOAT, 8);
+
+        define(0x71, BOOLEAN, 1);
+
+        define(0x91, STRING, 1);
+        define(0x92, STRING, 2);
+        define(0x94, STRING, 4);
+
+        define(0xB1, BYTEARRAY, 1);
+        define(0xB2, BYTEARRAY, 2);
+        define(0xB4, BYTEARRAY, 4);
+    }
+
+    private static void define(int tag, byte kind, int width)
+    {
+        KIND[tag] = kind;
+        WIDTH[tag] = (byte)width;
+    }
+}
@@ -0,0 +1,154 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+class CSocketDatagramBatcher
+{
+    private HashMap<CSocketAddress, Batch> _batches;
+    private volatile CSocketBatchPolicy _policy;
+    private BiConsumer<ByteBuffer, CSocketAddress> _send;
+    private CSocketMetrics _metrics;
+
+    public CSocketBatchPolicy getBatchPolicy()
+    {
+        return _policy;
+    }
+
+    public void setBatchPolicy(CSocketBatchPolicy policy)
+    {
+        _policy = policy;
+        flush();
+    }
+
+    // Frames are counted as sent, and their send latency recorded, when their datagram goes out rather than when they join a batch.
+    public CSocketDatagramBatcher(BiConsumer<ByteBuffer, CSocketAddress> send, CSocketMetrics metrics)
+    {
+        _batches = new HashMap<CSocketAddress, Batch>();
+        _policy = CSocketBatchPolicy.immediate();
+        _send = send;
+        _metrics = metrics;
+    }
+
+    public synchronized void add(ByteBuffer frame, int command, CSocketAddress address)
+    {
+        CSocketBatchPolicy policy = _policy;
+        int length = frame.remaining();
+        long start = _metrics.isLatencyEnabled() ? System.nanoTime() : 0;
+
+        if (policy.isImmediate() || length >= policy.getPayloadSize())
+        {
+            Batch batch = _batches.get(address);
+
+            if (batch != null)
+                send(batch);
+
+            _send.accept(frame, address);
+            sent(new Frame(command, length, start));
+            return;
+        }
+
+        Batch batch = _batches.get(address);
+
+        if (batch == null || batch._buffer.capacity() != policy.getPayloadSize())
+        {
+            if (batch != null)
+                send(batch);
+
+            batch = new Batch(address, policy.getPayloadSize());
+            _batches.put(address, batch);
+        }
+
+        if (batch._buffer.remaining() < length)
+            send(batch);
+
+        batch._buffer.put(frame);
+        batch._frames.add(new Frame(command, length, start));
+
+        if (batch._buffer.remaining() == 0)
+        {
+            send(batch);
+        }
+        else if (!batch._scheduled)
+        {
+            Batch pending = batch;
+
+            pending._scheduled = true;
+            CSocketOutboundQueue.SCHEDULER.schedule(() -> expire(pending), policy.getDelay(), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    public synchronized void flush()
+    {
+        for (Batch batch : new ArrayList<Batch>(_batches.values()))
+            send(batch);
+
+        _batches.clear();
+    }
+
+    // The entry is dropped once its timer fires, so an idle destination does not pin a payload-sized buffer.
+    private synchronized void expire(Batch batch)
+    {
+        batch._scheduled = false;
+
+        send(batch);
+
+        if (_batches.get(batch._address) == batch)
+            _batches.remove(batch._address);
+    }
+
+    private void send(Batch batch)
+    {
+        if (batch._buffer.position() == 0)
+            return;
+
+        batch._buffer.flip();
+        _send.accept(batch._buffer, batch._address);
+        batch._buffer.clear();
+
+        for (Frame frame : batch._frames)
+            sent(frame);
+
+        batch._frames.clear();
+    }
+
+    private void sent(Frame frame)
+    {
+        _metrics.frameSent(frame._command, frame._length);
+
+        if (frame._start != 0)
+            _metrics.recordSend(frame._command, System.nanoTime() - frame._start);
+    }
+
+    private static class Batch
+    {
+        private CSocketAddress _address;
+        private ByteBuffer _buffer;
+        private ArrayList<Frame> _frames;
+        private boolean _scheduled;
+
+        private Batch(CSocketAddress address, int payloadSize)
+        {
+            _address = address;
+            _buffer = ByteBuffer.allocate(payloadSize);
+            _frames = new ArrayList<Frame>();
+        }
+    }
+
+    private static class Frame
+    {
+        private int _command;
+        private int _length;
+        private long _start;
+
+        private Frame(int command, int length, long start)
+        {
+            _command = command;
+            _length = length;
+            _start = start;
+        }
+    }
+}
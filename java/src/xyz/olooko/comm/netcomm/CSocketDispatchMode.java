@@ -0,0 +1,6 @@
+package xyz.olooko.comm.netcomm;
+
+public enum CSocketDispatchMode
+{
+    Inline, Executor
+}
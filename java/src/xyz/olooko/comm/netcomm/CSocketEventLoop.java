@@ -0,0 +1,117 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CSocketEventLoop implements Runnable
+{
+    private Selector _selector;
+    private Thread _thread;
+    private ConcurrentLinkedQueue<Runnable> _tasks;
+    private AtomicBoolean _wakeup;
+    private volatile boolean _running;
+
+    public boolean isRunning()
+    {
+        return _running;
+    }
+
+    public boolean inEventLoop()
+    {
+        return Thread.currentThread() == _thread;
+    }
+
+    public CSocketEventLoop(String name)
+    {
+        _tasks = new ConcurrentLinkedQueue<Runnable>();
+        _wakeup = new AtomicBoolean(false);
+
+        try {
+            _selector = Selector.open();
+            _running = true;
+        }
+        catch (Exception e) {}
+
+        if (_running)
+        {
+            _thread = new Thread(this, name);
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+    }
+
+    public void execute(Runnable task)
+    {
+        _tasks.add(task);
+
+        if (!inEventLoop() && _wakeup.compareAndSet(false, true))
+            _selector.wakeup();
+    }
+
+    public void close()
+    {
+        _running = false;
+        _selector.wakeup();
+    }
+
+    SelectionKey register(SelectableChannel channel, int ops, Object attachment)
+    {
+        try {
+            return channel.register(_selector, ops, attachment);
+        }
+        catch (Exception e) {}
+
+        return null;
+    }
+
+    @Override
+    public void run()
+    {
+        while (_running)
+        {
+            try {
+                _selector.select(this::selected);
+            }
+            catch (Exception e) {}
+
+            _wakeup.set(false);
+
+            Runnable task;
+            while ((task = _tasks.poll()) != null)
+            {
+                try {
+                    task.run();
+                }
+                catch (Exception e) {}
+            }
+        }
+
+        for (SelectionKey key : _selector.keys())
+        {
+            try {
+                key.channel().close();
+            }
+            catch (Exception e) {}
+        }
+
+        try {
+            _selector.close();
+        }
+        catch (Exception e) {}
+    }
+
+    private void selected(SelectionKey key)
+    {
+        Object attachment = key.attachment();
+
+        if (attachment instanceof CSocket) {
+            ((CSocket)attachment).selected(key);
+        }
+        else if (attachment instanceof TcpServer) {
+            ((TcpServer)attachment).selected(key);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CSocketEventLoopGroup
+{
+    private CSocketEventLoop[] _loops;
+    private AtomicInteger _index;
+
+    public int getLength()
+    {
+        return _loops.length;
+    }
+
+    public CSocketEventLoopGroup()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CSocketEventLoopGroup(int nThreads)
+    {
+        _loops = new CSocketEventLoop[Math.max(1, nThreads)];
+        _index = new AtomicInteger(0);
+
+        for (int n = 0; n < _loops.length; n++)
+            _loops[n] = new CSocketEventLoop(String.format("netcomm-eventloop-%d", n));
+    }
+
+    public CSocketEventLoop next()
+    {
+        return _loops[Math.floorMod(_index.getAndIncrement(), _loops.length)];
+    }
+
+    public void close()
+    {
+        for (CSocketEventLoop loop : _loops)
+            loop.close();
+    }
+}
@@ -0,0 +1,33 @@
+package xyz.olooko.comm.netcomm;
+
+public class CSocketFlushPolicy
+{
+    private int _frames;
+    private long _delay;
+
+    public int getFrames() 
+    {
+        return _frames;
+    }
+
+    public long getDelay() 
+    {
+        return _delay;
+    }
+
+    public boolean isImmediate() 
+    {
+        return _frames <= 1 && _delay <= 0;
+    }
+
+    public CSocketFlushPolicy(int frames, long delayMicros)
+    {
+        _frames = frames;
+        _delay = delayMicros;
+    }
+
+    public static CSocketFlushPolicy immediate()
+    {
+        return new CSocketFlushPolicy(1, 0);
+    }
+}
@@ -0,0 +1,69 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class CSocketHistogram
+{
+    // Log-linear buckets: values below 32 get exact slots, every power of two above that is split into 16,
+    // which bounds the relative error to about 6% over the full long range.
+    static final int SUB_BITS = 5;
+    static final int HALF = 1 << (SUB_BITS - 1);
+    static final int LENGTH = (64 - SUB_BITS) * HALF + HALF;
+
+    private AtomicLongArray _counts;
+
+    public CSocketHistogram()
+    {
+        _counts = new AtomicLongArray(LENGTH);
+    }
+
+    public void record(long value)
+    {
+        _counts.incrementAndGet(index(value));
+    }
+
+    public CSocketHistogramSnapshot snapshot()
+    {
+        long[] counts = new long[LENGTH];
+
+        for (int n = 0; n < LENGTH; n++)
+            counts[n] = _counts.get(n);
+
+        return new CSocketHistogramSnapshot(counts);
+    }
+
+    public CSocketHistogramSnapshot intervalSnapshot()
+    {
+        long[] counts = new long[LENGTH];
+
+        for (int n = 0; n < LENGTH; n++)
+            counts[n] = _counts.getAndSet(n, 0);
+
+        return new CSocketHistogramSnapshot(counts);
+    }
+
+    public void reset()
+    {
+        for (int n = 0; n < LENGTH; n++)
+            _counts.set(n, 0);
+    }
+
+    static int index(long value)
+    {
+        if (value < 0)
+            value = 0;
+
+        int bucket = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (bucket << (SUB_BITS - 1)) + (int)(value >>> bucket);
+    }
+
+    static long highestValue(int index)
+    {
+        if (index < 2 * HALF)
+            return index;
+
+        int bucket = (index >>> (SUB_BITS - 1)) - 1;
+        long sub = index - ((long)bucket << (SUB_BITS - 1));
+        return ((sub + 1) << bucket) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package xyz.olooko.comm.netcomm;
+
+public class CSocketHistogramSnapshot
+{
+    private long[] _counts;
+    private long _count;
+
+    public long getCount()
+    {
+        return _count;
+    }
+
+    public CSocketHistogramSnapshot(long[] counts)
+    {
+        _counts = counts;
+
+        for (long count : counts)
+            _count += count;
+    }
+
+    public long getValueAtPercentile(double percentile)
+    {
+        if (_count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(Math.min(100, percentile) / 100 * _count));
+        long seen = 0;
+
+        for (int n = 0; n < _counts.length; n++)
+        {
+            seen += _counts[n];
+
+            if (seen >= rank)
+                return CSocketHistogram.highestValue(n);
+        }
+        return getMax();
+    }
+
+    public long getMax()
+    {
+        for (int n = _counts.length - 1; n >= 0; n--)
+        {
+            if (_counts[n] > 0)
+                return CSocketHistogram.highestValue(n);
+        }
+        return 0;
+    }
+
+    public double getMean()
+    {
+        if (_count == 0)
+            return 0;
+
+        double total = 0;
+
+        for (int n = 0; n < _counts.length; n++)
+        {
+            if (_counts[n] > 0)
+                total += (double)_counts[n] * CSocketHistogram.highestValue(n);
+        }
+        return total / _count;
+    }
+}
@@ -0,0 +1,61 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class CSocketLatency
+{
+    private static final int COMMAND_SIZE = 256;
+
+    private AtomicReferenceArray<CSocketHistogram> _decode;
+    private AtomicReferenceArray<CSocketHistogram> _callback;
+    private AtomicReferenceArray<CSocketHistogram> _send;
+
+    public CSocketLatency()
+    {
+        _decode = new AtomicReferenceArray<CSocketHistogram>(COMMAND_SIZE);
+        _callback = new AtomicReferenceArray<CSocketHistogram>(COMMAND_SIZE);
+        _send = new AtomicReferenceArray<CSocketHistogram>(COMMAND_SIZE);
+    }
+
+    public CSocketHistogram getDecode(int command)
+    {
+        return _decode.get(command & 0xFF);
+    }
+
+    public CSocketHistogram getCallback(int command)
+    {
+        return _callback.get(command & 0xFF);
+    }
+
+    public CSocketHistogram getSend(int command)
+    {
+        return _send.get(command & 0xFF);
+    }
+
+    void recordDecode(int command, long nanos)
+    {
+        histogram(_decode, command).record(nanos);
+    }
+
+    void recordCallback(int command, long nanos)
+    {
+        histogram(_callback, command).record(nanos);
+    }
+
+    void recordSend(int command, long nanos)
+    {
+        histogram(_send, command).record(nanos);
+    }
+
+    private static CSocketHistogram histogram(AtomicReferenceArray<CSocketHistogram> histograms, int command)
+    {
+        CSocketHistogram histogram = histograms.get(command & 0xFF);
+
+        if (histogram == null)
+        {
+            histograms.compareAndSet(command & 0xFF, null, new CSocketHistogram());
+            histogram = histograms.get(command & 0xFF);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,323 @@
+package xyz.olooko.comm.netcomm;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+public class CSocketMetrics implements CSocketMetricsMXBean
+{
+    private static final int COMMAND_SIZE = 256;
+    private static final AtomicLong SEQUENCE = new AtomicLong(0);
+
+    private CSocketMetrics _parent;
+    private LongAdder _framesIn;
+    private LongAdder _framesOut;
+    private LongAdder _bytesIn;
+    private LongAdder _bytesOut;
+    private LongAdder _parseErrors;
+    private LongAdder _interrupted;
+    private LongAdder _closes;
+    private LongAdder _sendFailures;
+    private LongAdder _accepts;
+    private LongAdder _connections;
+    private LongAccumulator _bufferHighWater;
+    private AtomicReferenceArray<LongAdder> _commandFramesIn;
+    private AtomicReferenceArray<LongAdder> _commandFramesOut;
+    private volatile CSocketLatency _latency;
+    private ObjectName _name;
+
+    public CSocketMetrics getParent()
+    {
+        return _parent;
+    }
+
+    public long getFramesIn()
+    {
+        return _framesIn.sum();
+    }
+
+    public long getFramesOut()
+    {
+        return _framesOut.sum();
+    }
+
+    public long getBytesIn()
+    {
+        return _bytesIn.sum();
+    }
+
+    public long getBytesOut()
+    {
+        return _bytesOut.sum();
+    }
+
+    public long getParseErrors()
+    {
+        return _parseErrors.sum();
+    }
+
+    public long getInterrupted()
+    {
+        return _interrupted.sum();
+    }
+
+    public long getCloses()
+    {
+        return _closes.sum();
+    }
+
+    public long getSendFailures()
+    {
+        return _sendFailures.sum();
+    }
+
+    public long getAccepts()
+    {
+        return _accepts.sum();
+    }
+
+    public long getConnections()
+    {
+        return _connections.sum();
+    }
+
+    public long getBufferHighWater()
+    {
+        return _bufferHighWater.get();
+    }
+
+    public CSocketLatency getLatency()
+    {
+        return _latency;
+    }
+
+    public synchronized void setLatencyEnabled(boolean enabled)
+    {
+        if (enabled && _latency == null)
+            _latency = new CSocketLatency();
+        else if (!enabled)
+            _latency = null;
+    }
+
+    public long getFramesIn(int command)
+    {
+        LongAdder adder = _commandFramesIn.get(command & 0xFF);
+        return (adder != null) ? adder.sum() : 0;
+    }
+
+    public long getFramesOut(int command)
+    {
+        LongAdder adder = _commandFramesOut.get(command & 0xFF);
+        return (adder != null) ? adder.sum() : 0;
+    }
+
+    public long[] getCommandFramesIn()
+    {
+        return sum(_commandFramesIn);
+    }
+
+    public long[] getCommandFramesOut()
+    {
+        return sum(_commandFramesOut);
+    }
+
+    public CSocketMetrics(CSocketMetrics parent)
+    {
+        _parent = parent;
+        _framesIn = new LongAdder();
+        _framesOut = new LongAdder();
+        _bytesIn = new LongAdder();
+        _bytesOut = new LongAdder();
+        _parseErrors = new LongAdder();
+        _interrupted = new LongAdder();
+        _closes = new LongAdder();
+        _sendFailures = new LongAdder();
+        _accepts = new LongAdder();
+        _connections = new LongAdder();
+        _bufferHighWater = new LongAccumulator(Math::max, 0);
+        _commandFramesIn = new AtomicReferenceArray<LongAdder>(COMMAND_SIZE);
+        _commandFramesOut = new AtomicReferenceArray<LongAdder>(COMMAND_SIZE);
+    }
+
+    public CSocketMetricsSnapshot snapshot()
+    {
+        return new CSocketMetricsSnapshot(this);
+    }
+
+    public synchronized boolean register(String name)
+    {
+        try {
+            ObjectName objectName = new ObjectName("xyz.olooko.comm.netcomm:type=CSocketMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            _name = objectName;
+            return true;
+        }
+        catch (Exception e) {}
+
+        return false;
+    }
+
+    // Sockets and listeners register under their type, a sequence number and their local address, and unregister on close.
+    boolean register(String type, CSocketAddress address)
+    {
+        return register(type + "-" + SEQUENCE.incrementAndGet() + " " + address);
+    }
+
+    public synchronized void unregister()
+    {
+        if (_name == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(_name);
+        }
+        catch (Exception e) {}
+
+        _name = null;
+    }
+
+    void received(long bytes, long capacity)
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            m._bytesIn.add(bytes);
+            m._bufferHighWater.accumulate(capacity);
+        }
+    }
+
+    void frameReceived(int command)
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            m._framesIn.increment();
+            adder(m._commandFramesIn, command).increment();
+        }
+    }
+
+    void frameSent(int command, long bytes)
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            m._framesOut.increment();
+            m._bytesOut.add(bytes);
+
+            if (command >= 0)
+                adder(m._commandFramesOut, command).increment();
+        }
+    }
+
+    boolean isLatencyEnabled()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            if (m._latency != null)
+                return true;
+        }
+        return false;
+    }
+
+    void recordDecode(int command, long nanos)
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            CSocketLatency latency = m._latency;
+
+            if (latency != null)
+                latency.recordDecode(command, nanos);
+        }
+    }
+
+    void recordCallback(int command, long nanos)
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            CSocketLatency latency = m._latency;
+
+            if (latency != null)
+                latency.recordCallback(command, nanos);
+        }
+    }
+
+    void recordSend(int command, long nanos)
+    {
+        if (command < 0)
+            return;
+
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+        {
+            CSocketLatency latency = m._latency;
+
+            if (latency != null)
+                latency.recordSend(command, nanos);
+        }
+    }
+
+    void parseError()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._parseErrors.increment();
+    }
+
+    void interrupted()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._interrupted.increment();
+    }
+
+    void closed()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._closes.increment();
+    }
+
+    void sendFailed()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._sendFailures.increment();
+    }
+
+    void accepted()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._accepts.increment();
+    }
+
+    void connectionOpened()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._connections.increment();
+    }
+
+    void connectionClosed()
+    {
+        for (CSocketMetrics m = this; m != null; m = m._parent)
+            m._connections.decrement();
+    }
+
+    private static LongAdder adder(AtomicReferenceArray<LongAdder> adders, int command)
+    {
+        LongAdder adder = adders.get(command & 0xFF);
+
+        if (adder == null)
+        {
+            adders.compareAndSet(command & 0xFF, null, new LongAdder());
+            adder = adders.get(command & 0xFF);
+        }
+        return adder;
+    }
+
+    private static long[] sum(AtomicReferenceArray<LongAdder> adders)
+    {
+        long[] values = new long[COMMAND_SIZE];
+
+        for (int n = 0; n < COMMAND_SIZE; n++)
+        {
+            LongAdder adder = adders.get(n);
+            values[n] = (adder != null) ? adder.sum() : 0;
+        }
+        return values;
+    }
+}
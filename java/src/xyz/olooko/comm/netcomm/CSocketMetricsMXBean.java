@@ -0,0 +1,30 @@
+package xyz.olooko.comm.netcomm;
+
+public interface CSocketMetricsMXBean
+{
+    long getFramesIn();
+
+    long getFramesOut();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getParseErrors();
+
+    long getInterrupted();
+
+    long getCloses();
+
+    long getSendFailures();
+
+    long getAccepts();
+
+    long getConnections();
+
+    long getBufferHighWater();
+
+    long[] getCommandFramesIn();
+
+    long[] getCommandFramesOut();
+}
@@ -0,0 +1,128 @@
+package xyz.olooko.comm.netcomm;
+
+public class CSocketMetricsSnapshot
+{
+    private long _timestamp;
+    private long _framesIn;
+    private long _framesOut;
+    private long _bytesIn;
+    private long _bytesOut;
+    private long _parseErrors;
+    private long _interrupted;
+    private long _closes;
+    private long _sendFailures;
+    private long _accepts;
+    private long _connections;
+    private long _bufferHighWater;
+    private long[] _commandFramesIn;
+    private long[] _commandFramesOut;
+
+    public long getTimestamp()
+    {
+        return _timestamp;
+    }
+
+    public long getFramesIn()
+    {
+        return _framesIn;
+    }
+
+    public long getFramesOut()
+    {
+        return _framesOut;
+    }
+
+    public long getBytesIn()
+    {
+        return _bytesIn;
+    }
+
+    public long getBytesOut()
+    {
+        return _bytesOut;
+    }
+
+    public long getParseErrors()
+    {
+        return _parseErrors;
+    }
+
+    public long getInterrupted()
+    {
+        return _interrupted;
+    }
+
+    public long getCloses()
+    {
+        return _closes;
+    }
+
+    public long getSendFailures()
+    {
+        return _sendFailures;
+    }
+
+    public long getAccepts()
+    {
+        return _accepts;
+    }
+
+    public long getConnections()
+    {
+        return _connections;
+    }
+
+    public long getBufferHighWater()
+    {
+        return _bufferHighWater;
+    }
+
+    public long getFramesIn(int command)
+    {
+        return _commandFramesIn[command & 0xFF];
+    }
+
+    public long getFramesOut(int command)
+    {
+        return _commandFramesOut[command & 0xFF];
+    }
+
+    public CSocketMetricsSnapshot(CSocketMetrics metrics)
+    {
+        _timestamp = System.nanoTime();
+        _framesIn = metrics.getFramesIn();
+        _framesOut = metrics.getFramesOut();
+        _bytesIn = metrics.getBytesIn();
+        _bytesOut = metrics.getBytesOut();
+        _parseErrors = metrics.getParseErrors();
+        _interrupted = metrics.getInterrupted();
+        _closes = metrics.getCloses();
+        _sendFailures = metrics.getSendFailures();
+        _accepts = metrics.getAccepts();
+        _connections = metrics.getConnections();
+        _bufferHighWater = metrics.getBufferHighWater();
+        _commandFramesIn = metrics.getCommandFramesIn();
+        _commandFramesOut = metrics.getCommandFramesOut();
+    }
+
+    public double getAcceptRate(CSocketMetricsSnapshot previous)
+    {
+        return rate(_accepts - previous._accepts, previous);
+    }
+
+    public double getFrameInRate(CSocketMetricsSnapshot previous)
+    {
+        return rate(_framesIn - previous._framesIn, previous);
+    }
+
+    public double getFrameOutRate(CSocketMetricsSnapshot previous)
+    {
+        return rate(_framesOut - previous._framesOut, previous);
+    }
+
+    private double rate(long delta, CSocketMetricsSnapshot previous)
+    {
+        long elapsed = _timestamp - previous._timestamp;
+        return (elapsed > 0) ? delta * 1e9 / elapsed : 0;
+    }
+}
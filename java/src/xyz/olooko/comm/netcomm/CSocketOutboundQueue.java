@@ -0,0 +1,327 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+class CSocketOutboundQueue
+{
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor((task) -> {
+        Thread t = new Thread(task, "netcomm-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Delayed blocking flushes share a fixed pool; each queue has at most one flush pending, so this never grows per socket.
+    static final ExecutorService WRITER = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), (task) -> {
+        Thread t = new Thread(task, "netcomm-flush-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ConcurrentLinkedQueue<Entry> _queue;
+    private AtomicInteger _frames;
+    private AtomicLong _bytes;
+    private AtomicBoolean _scheduled;
+    private AtomicBoolean _handedOff;
+    private AtomicBoolean _writable;
+    private volatile CSocketFlushPolicy _policy;
+    private volatile CSocketWriteWatermark _watermark;
+    private volatile Consumer<Boolean> _writabilityChanged;
+    private Runnable _flush;
+    private Executor _executor;
+    private volatile CSocketMetrics _metrics;
+    private ArrayList<Entry> _drained;
+
+    public CSocketFlushPolicy getFlushPolicy()
+    {
+        return _policy;
+    }
+
+    public void setFlushPolicy(CSocketFlushPolicy policy)
+    {
+        _policy = policy;
+    }
+
+    public CSocketWriteWatermark getWriteWatermark()
+    {
+        return _watermark;
+    }
+
+    public void setWriteWatermark(CSocketWriteWatermark watermark)
+    {
+        _watermark = watermark;
+        updateWritability();
+    }
+
+    public void setWritabilityChanged(Consumer<Boolean> callback)
+    {
+        _writabilityChanged = callback;
+    }
+
+    // Frames are counted as sent, and their send latency recorded from the add, when the drain reports
+    // through sent() that their write and flush returned.
+    public void setMetrics(CSocketMetrics metrics)
+    {
+        _metrics = metrics;
+    }
+
+    public boolean isWritable()
+    {
+        return _writable.get();
+    }
+
+    public int getFrames()
+    {
+        return _frames.get();
+    }
+
+    public long getBytes()
+    {
+        return _bytes.get();
+    }
+
+    public CSocketOutboundQueue(Runnable flush)
+    {
+        this(flush, Runnable::run);
+    }
+
+    // The delayed flush is handed to executor, so a blocking write never runs on the shared scheduler thread.
+    public CSocketOutboundQueue(Runnable flush, Executor executor)
+    {
+        _queue = new ConcurrentLinkedQueue<Entry>();
+        _frames = new AtomicInteger(0);
+        _bytes = new AtomicLong(0);
+        _scheduled = new AtomicBoolean(false);
+        _handedOff = new AtomicBoolean(false);
+        _drained = new ArrayList<Entry>();
+        _writable = new AtomicBoolean(true);
+        _policy = CSocketFlushPolicy.immediate();
+        _watermark = CSocketWriteWatermark.getDefault();
+        _flush = flush;
+        _executor = executor;
+    }
+
+    public void add(ByteBuffer frame, int command)
+    {
+        add(frame, command, false);
+    }
+
+    // Like add(), but a flush that falls due is handed to the executor instead of running on the caller's thread.
+    public void offer(ByteBuffer frame, int command)
+    {
+        add(frame, command, true);
+    }
+
+    private void add(ByteBuffer frame, int command, boolean handOff)
+    {
+        frame = normalize(frame);
+
+        _queue.add(new Entry(frame, command, frame.limit(), now()));
+        int frames = _frames.incrementAndGet();
+        _bytes.addAndGet(frame.limit());
+        updateWritability();
+
+        CSocketFlushPolicy policy = _policy;
+
+        if ((policy.isImmediate() || frames >= policy.getFrames()) && !handOff) {
+            _flush.run();
+        }
+        else if (policy.isImmediate() || frames >= policy.getFrames()) 
+        {
+            // One hand-off per queue at a time; frames added meanwhile are drained by the same flush.
+            if (_handedOff.compareAndSet(false, true))
+            {
+                _executor.execute(() -> {
+                    _handedOff.set(false);
+                    _flush.run();
+                });
+            }
+        }
+        else if (policy.getDelay() > 0 && _scheduled.compareAndSet(false, true)) 
+        {
+            SCHEDULER.schedule(() -> {
+                _scheduled.set(false);
+                _executor.execute(_flush);
+            }, policy.getDelay(), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    public void addAll(List<ByteBuffer> frames, int[] commands)
+    {
+        long bytes = 0;
+        long enqueued = now();
+        for (int n = 0; n < frames.size(); n++) 
+        {
+            ByteBuffer frame = normalize(frames.get(n));
+            _queue.add(new Entry(frame, commands[n], frame.limit(), enqueued));
+            bytes += frame.limit();
+        }
+        _frames.addAndGet(frames.size());
+        _bytes.addAndGet(bytes);
+        updateWritability();
+        _flush.run();
+    }
+
+    // The segments make up one frame, which is counted once its last segment is drained.
+    public void addFrame(List<ByteBuffer> segments, int command)
+    {
+        long bytes = 0;
+        long enqueued = now();
+        for (int n = 0; n < segments.size(); n++) 
+        {
+            ByteBuffer segment = normalize(segments.get(n));
+            bytes += segment.limit();
+            _queue.add(new Entry(segment, command, (n == segments.size() - 1) ? bytes : -1, enqueued));
+        }
+        _frames.incrementAndGet();
+        _bytes.addAndGet(bytes);
+        updateWritability();
+        _flush.run();
+    }
+
+    public boolean isEmpty()
+    {
+        return _queue.isEmpty();
+    }
+
+    public ByteBuffer peek()
+    {
+        Entry entry = _queue.peek();
+        return (entry != null) ? entry._buffer : null;
+    }
+
+    public ByteBuffer poll()
+    {
+        return poll(true);
+    }
+
+    public int peek(ByteBuffer[] frames)
+    {
+        int count = 0;
+        for (Entry entry : _queue) 
+        {
+            frames[count++] = entry._buffer;
+            if (count == frames.length)
+                break;
+        }
+        return count;
+    }
+
+    // Only the drain calls poll(), sent() and clear(), one thread at a time, so _drained needs no lock.
+    public void clear()
+    {
+        while (poll(false) != null) {}
+
+        _drained.clear();
+    }
+
+    // Counts the frames polled since the last call, once the drain has written and flushed them.
+    public void sent()
+    {
+        CSocketMetrics metrics = _metrics;
+
+        if (metrics != null)
+        {
+            long now = System.nanoTime();
+
+            for (Entry entry : _drained)
+            {
+                metrics.frameSent(entry._command, entry._length);
+
+                if (entry._enqueued != 0)
+                    metrics.recordSend(entry._command, now - entry._enqueued);
+            }
+        }
+
+        _drained.clear();
+    }
+
+    private ByteBuffer poll(boolean sent)
+    {
+        Entry entry = _queue.poll();
+
+        if (entry == null)
+            return null;
+
+        if (entry._length >= 0)
+            _frames.decrementAndGet();
+
+        _bytes.addAndGet(-entry._buffer.limit());
+        updateWritability();
+
+        if (sent && entry._length >= 0)
+            _drained.add(entry);
+
+        return entry._buffer;
+    }
+
+    private long now()
+    {
+        CSocketMetrics metrics = _metrics;
+        return (metrics != null && metrics.isLatencyEnabled()) ? System.nanoTime() : 0;
+    }
+
+    // Frames are accounted by limit() both ways, since a partly written frame's remaining() has already shrunk.
+    private static ByteBuffer normalize(ByteBuffer frame)
+    {
+        return (frame.position() == 0) ? frame : frame.slice();
+    }
+
+    private void updateWritability()
+    {
+        CSocketWriteWatermark watermark = _watermark;
+
+        // Re-check after each flip, since a racing add or poll may have moved the count past the other mark.
+        while (true)
+        {
+            long bytes = _bytes.get();
+
+            if (bytes > watermark.getHigh() && _writable.compareAndSet(true, false))
+                changed(false);
+            else if (bytes <= watermark.getLow() && _writable.compareAndSet(false, true))
+                changed(true);
+            else
+                return;
+        }
+    }
+
+    private void changed(boolean writable)
+    {
+        Consumer<Boolean> callback = _writabilityChanged;
+
+        if (callback != null) 
+        {
+            try {
+                callback.accept(writable);
+            }
+            catch (Exception e) {}
+        }
+    }
+
+    private static class Entry
+    {
+        ByteBuffer _buffer;
+        int _command;
+        long _length;
+        long _enqueued;
+
+        Entry(ByteBuffer buffer, int command, long length, long enqueued)
+        {
+            _buffer = buffer;
+            _command = command;
+            _length = length;
+            _enqueued = enqueued;
+        }
+    }
+}
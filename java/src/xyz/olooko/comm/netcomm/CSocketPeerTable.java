@@ -0,0 +1,147 @@
+package xyz.olooko.comm.netcomm;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+class CSocketPeerTable
+{
+    private static final int ADDRESS_CAPACITY = 65536;
+
+    // Timed-out peers are reported on one shared thread so the timer never runs callbacks and a flood
+    // of expiries never starts a thread each.
+    static final ExecutorService EXPIRY = Executors.newSingleThreadExecutor((task) -> {
+        Thread t = new Thread(task, "netcomm-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private LinkedHashMap<InetSocketAddress, CSocketAddress> _addresses;
+    private LinkedHashMap<CSocketAddress, Peer> _peers;
+    private int _capacity;
+    private long _byteCapacity;
+    private long _bytes;
+
+    public int getLength()
+    {
+        synchronized (this) {
+            return _peers.size();
+        }
+    }
+
+    public long getBytes()
+    {
+        synchronized (this) {
+            return _bytes;
+        }
+    }
+
+    public CSocketPeerTable(int capacity, long byteCapacity)
+    {
+        _capacity = Math.max(1, capacity);
+        _byteCapacity = Math.max(1, byteCapacity);
+
+        _addresses = new LinkedHashMap<InetSocketAddress, CSocketAddress>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<InetSocketAddress, CSocketAddress> eldest) {
+                return size() > ADDRESS_CAPACITY;
+            }
+        };
+
+        _peers = new LinkedHashMap<CSocketAddress, Peer>(256, 0.75f, true);
+    }
+
+    public synchronized CSocketAddress address(InetSocketAddress address)
+    {
+        CSocketAddress remoteAddress = _addresses.get(address);
+
+        if (remoteAddress == null) 
+        {
+            remoteAddress = new CSocketAddress(address);
+            _addresses.put(address, remoteAddress);
+        }
+        return remoteAddress;
+    }
+
+    public synchronized CSocketData remove(CSocketAddress address)
+    {
+        Peer peer = _peers.remove(address);
+
+        if (peer == null)
+            return null;
+
+        peer._timeout.cancel();
+        _bytes -= peer._length;
+        return peer._data;
+    }
+
+    // Peers beyond either capacity are evicted eldest first and reported through expired, like a timeout,
+    // but inline on the caller's receive thread.
+    public void put(CSocketAddress address, CSocketData data, long timeout, BiConsumer<CSocketAddress, CSocketData> expired)
+    {
+        ArrayList<Map.Entry<CSocketAddress, Peer>> evicted = new ArrayList<Map.Entry<CSocketAddress, Peer>>();
+
+        synchronized (this) {
+            Peer peer = new Peer(data);
+            peer._timeout = CSocketTimer.getShared().newTimeout(() -> expire(address, peer, expired));
+            peer._timeout.arm(timeout);
+
+            Peer previous = _peers.put(address, peer);
+
+            if (previous != null)
+            {
+                previous._timeout.cancel();
+                _bytes -= previous._length;
+                evicted.add(Map.entry(address, previous));
+            }
+
+            _bytes += peer._length;
+
+            Iterator<Map.Entry<CSocketAddress, Peer>> it = _peers.entrySet().iterator();
+
+            while ((_peers.size() > _capacity || _bytes > _byteCapacity) && it.hasNext())
+            {
+                Map.Entry<CSocketAddress, Peer> eldest = it.next();
+                it.remove();
+
+                eldest.getValue()._timeout.cancel();
+                _bytes -= eldest.getValue()._length;
+                evicted.add(eldest);
+            }
+        }
+
+        for (Map.Entry<CSocketAddress, Peer> eldest : evicted)
+            expired.accept(eldest.getKey(), eldest.getValue()._data);
+    }
+
+    private void expire(CSocketAddress address, Peer peer, BiConsumer<CSocketAddress, CSocketData> expired)
+    {
+        synchronized (this) {
+            if (_peers.get(address) != peer)
+                return;
+
+            _peers.remove(address);
+            _bytes -= peer._length;
+        }
+
+        EXPIRY.execute(() -> expired.accept(address, peer._data));
+    }
+
+    private static class Peer
+    {
+        private CSocketData _data;
+        private CSocketTimeout _timeout;
+        private int _length;
+
+        private Peer(CSocketData data)
+        {
+            _data = data;
+            _length = data.getCapacity();
+        }
+    }
+}
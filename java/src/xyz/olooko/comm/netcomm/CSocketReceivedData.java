@@ -1,16 +1,30 @@
 package xyz.olooko.comm.netcomm;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class CSocketReceivedData
 {
     private byte _command;
     private CSocketDataArgs _args;
+    private CSocketDataColumnArgs _columnArgs;
     private CSocketReceivedDataResult _result;
     private CSocketAddress _address;
 
+    private CSocketReceivedDataPool _pool;
+    private AtomicInteger _refCnt;
+
     public CSocketDataArgs getArgs()
     {
+        if (_args == null && _columnArgs != null)
+            _args = _columnArgs.toArgs();
+
         return _args;
     }
+
+    public CSocketDataColumnArgs getColumnArgs()
+    {
+        return _columnArgs;
+    }
     
     public int getCommand() 
     {
@@ -27,6 +41,11 @@ public class CSocketReceivedData
         return _result;
     }
 
+    public boolean isPooled()
+    {
+        return _pool != null;
+    }
+
     public CSocketReceivedData(int command, CSocketDataArgs args, CSocketReceivedDataResult result, CSocketAddress address)
     {
         _command = (byte)(command & 0xFF);
@@ -34,6 +53,97 @@ public class CSocketReceivedData
         _result = result;
         _address = address;
     }
-}
 
+    public CSocketReceivedData(int command, CSocketDataColumnArgs args, CSocketReceivedDataResult result, CSocketAddress address)
+    {
+        _command = (byte)(command & 0xFF);
+        _columnArgs = args;
+        _result = result;
+        _address = address;
+    }
+
+    CSocketReceivedData(CSocketReceivedDataPool pool)
+    {
+        _args = new CSocketDataArgs();
+        _pool = pool;
+        _refCnt = new AtomicInteger(0);
+    }
+
+    // Pooled data belongs to the socket until the callback returns, after which it is
+    // recycled and its args are cleared. A callback that keeps the data past its return
+    // must retain() it, from within the callback, and later release() it exactly once.
+    // retain() does not pin the receive buffer: zero-copy views are copied into owned
+    // values at that point, since the next read reuses the bytes they point at.
+    public CSocketReceivedData retain()
+    {
+        if (_pool != null)
+        {
+            _refCnt.incrementAndGet();
+
+            for (int n = 0; n < _args.getLength(); n++)
+                _args.set(n, own(_args.at(n)));
+        }
+
+        return this;
+    }
+
+    public boolean release()
+    {
+        if (_pool == null)
+            return false;
+
+        int refCnt;
+
+        do {
+            refCnt = _refCnt.get();
+
+            if (refCnt == 0)
+                return false;
+        }
+        while (!_refCnt.compareAndSet(refCnt, refCnt - 1));
+
+        if (refCnt > 1)
+            return false;
 
+        _args.clear();
+        _address = null;
+        _pool.recycle(this);
+        return true;
+    }
+
+    public CSocketReceivedData copy()
+    {
+        if (_args == null && _columnArgs != null)
+            return new CSocketReceivedData(_command, _columnArgs.copy(), _result, _address);
+
+        CSocketDataArgs args = new CSocketDataArgs();
+
+        for (int n = 0; n < _args.getLength(); n++)
+            args.add(own(_args.at(n)));
+
+        return new CSocketReceivedData(_command, args, _result, _address);
+    }
+
+    static IDataType own(IDataType value)
+    {
+        if (value instanceof CByteArray && ((CByteArray)value).isView())
+            return ((CByteArray)value).copy();
+        else if (value instanceof CString && ((CString)value).isView())
+            return ((CString)value).copy();
+
+        return value;
+    }
+
+    CSocketDataArgs reset(int command, CSocketDataArgs args, CSocketReceivedDataResult result, CSocketAddress address)
+    {
+        CSocketDataArgs spare = _args;
+
+        _command = (byte)(command & 0xFF);
+        _args = args;
+        _result = result;
+        _address = address;
+        _refCnt.set(1);
+
+        return spare;
+    }
+}
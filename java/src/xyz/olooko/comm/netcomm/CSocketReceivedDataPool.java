@@ -0,0 +1,27 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.ArrayDeque;
+
+class CSocketReceivedDataPool
+{
+    private static final int CAPACITY = 64;
+
+    private ArrayDeque<CSocketReceivedData> _free;
+
+    CSocketReceivedDataPool()
+    {
+        _free = new ArrayDeque<CSocketReceivedData>(CAPACITY);
+    }
+
+    synchronized CSocketReceivedData acquire()
+    {
+        CSocketReceivedData data = _free.pollLast();
+        return (data != null) ? data : new CSocketReceivedData(this);
+    }
+
+    synchronized void recycle(CSocketReceivedData data)
+    {
+        if (_free.size() < CAPACITY)
+            _free.addLast(data);
+    }
+}
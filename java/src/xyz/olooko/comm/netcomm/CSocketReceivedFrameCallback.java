@@ -0,0 +1,6 @@
+package xyz.olooko.comm.netcomm;
+
+public interface CSocketReceivedFrameCallback
+{
+    void callMethod(CSocket socket, CSocketDataReader reader);
+}
@@ -0,0 +1,10 @@
+package xyz.olooko.comm.netcomm;
+
+import java.nio.ByteBuffer;
+
+public interface CSocketReceivedStreamCallback
+{
+    void onArgStart(CSocket socket, int command, int index, int length);
+    void onChunk(CSocket socket, ByteBuffer chunk);
+    void onArgEnd(CSocket socket);
+}
@@ -2,10 +2,13 @@ package xyz.olooko.comm.netcomm;
 
 public enum CSocketSendDataBuildResult
 {
+    BufferLengthOverflowError,
     ByteArrayLengthOverflowError, 
     CommandValueOverflowError,
     DataTotalLengthOverflowError,
     DataTypeNotImplementedError,
+    FileRegionNotSupportedError,
+    FileRegionReadError,
 	NoData,
     StringLengthOverflowError, 
     Successful
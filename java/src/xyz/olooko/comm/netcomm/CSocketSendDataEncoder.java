@@ -0,0 +1,526 @@
+package xyz.olooko.comm.netcomm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class CSocketSendDataEncoder
+{
+    static final int ARG_MAXLEN = 0x7FFFFF - 5;
+    static final int TXT_MAXLEN = Integer.MAX_VALUE - 10;
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private ByteBuffer _buffer;
+    private boolean _direct;
+
+    public ByteBuffer getBuffer()
+    {
+        return _buffer;
+    }
+
+    public CSocketSendDataEncoder()
+    {
+        this(4096, false);
+    }
+
+    public CSocketSendDataEncoder(int capacity, boolean direct)
+    {
+        _direct = direct;
+        _buffer = allocate(capacity);
+    }
+
+    public CSocketSendDataBuildResult encode(int command, CSocketDataArgs args)
+    {
+        CSocketSendDataBuildResult result = validate(command, args);
+
+        if (result != CSocketSendDataBuildResult.Successful)
+            return result;
+
+        if (hasFileRegion(args))
+            return CSocketSendDataBuildResult.FileRegionNotSupportedError;
+
+        int length = getFrameLength(args);
+
+        if (_buffer.capacity() < length)
+            _buffer = allocate(Math.max(_buffer.capacity() * 2, length));
+
+        _buffer.clear();
+        write(command, args, _buffer);
+        _buffer.flip();
+
+        return result;
+    }
+
+    public CSocketSendDataBuildResult encode(int command, CSocketDataColumnArgs args)
+    {
+        CSocketSendDataBuildResult result = validate(command, args);
+
+        if (result != CSocketSendDataBuildResult.Successful)
+            return result;
+
+        int length = getFrameLength(args);
+
+        if (_buffer.capacity() < length)
+            _buffer = allocate(Math.max(_buffer.capacity() * 2, length));
+
+        _buffer.clear();
+        write(command, args, _buffer);
+        _buffer.flip();
+
+        return result;
+    }
+
+    private ByteBuffer allocate(int capacity)
+    {
+        return _direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    public static CSocketSendDataBuildResult encode(int command, CSocketDataArgs args, ByteBuffer dst)
+    {
+        CSocketSendDataBuildResult result = validate(command, args);
+
+        if (result != CSocketSendDataBuildResult.Successful)
+            return result;
+
+        if (hasFileRegion(args))
+            return CSocketSendDataBuildResult.FileRegionNotSupportedError;
+
+        if (dst.remaining() < getFrameLength(args))
+            return CSocketSendDataBuildResult.BufferLengthOverflowError;
+
+        write(command, args, dst);
+        return result;
+    }
+
+    public static CSocketSendDataBuildResult encode(int command, CSocketDataColumnArgs args, ByteBuffer dst)
+    {
+        CSocketSendDataBuildResult result = validate(command, args);
+
+        if (result != CSocketSendDataBuildResult.Successful)
+            return result;
+
+        if (dst.remaining() < getFrameLength(args))
+            return CSocketSendDataBuildResult.BufferLengthOverflowError;
+
+        write(command, args, dst);
+        return result;
+    }
+
+    public static CSocketSendDataBuildResult validate(int command, CSocketDataArgs args)
+    {
+        if (command < 0x00 || command > 0xFF)
+            return CSocketSendDataBuildResult.CommandValueOverflowError;
+
+        long textlen = 1;
+
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            IDataType arg = args.at(n);
+
+            switch (arg.getDataType()) {
+                case CInteger, CFloat, CBoolean -> {}
+                case CString -> {
+                    if (getBytesLength(arg) > ARG_MAXLEN)
+                        return CSocketSendDataBuildResult.StringLengthOverflowError;
+                }
+                case CByteArray -> {
+                    if (getBytesLength(arg) > ARG_MAXLEN)
+                        return CSocketSendDataBuildResult.ByteArrayLengthOverflowError;
+                }
+                default -> {
+                    return CSocketSendDataBuildResult.DataTypeNotImplementedError;
+                }
+            }
+            textlen += getArgLength(arg);
+        }
+
+        if (textlen > TXT_MAXLEN)
+            return CSocketSendDataBuildResult.DataTotalLengthOverflowError;
+
+        return CSocketSendDataBuildResult.Successful;
+    }
+
+    public static CSocketSendDataBuildResult validate(int command, CSocketDataColumnArgs args)
+    {
+        if (command < 0x00 || command > 0xFF)
+            return CSocketSendDataBuildResult.CommandValueOverflowError;
+
+        long textlen = 1;
+
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            if (args.getKind(n) == CSocketDataTag.STRING && args.getBytesLength(n) > ARG_MAXLEN)
+                return CSocketSendDataBuildResult.StringLengthOverflowError;
+
+            if (args.getKind(n) == CSocketDataTag.BYTEARRAY && args.getBytesLength(n) > ARG_MAXLEN)
+                return CSocketSendDataBuildResult.ByteArrayLengthOverflowError;
+
+            textlen += getArgLength(args, n);
+        }
+
+        if (textlen > TXT_MAXLEN)
+            return CSocketSendDataBuildResult.DataTotalLengthOverflowError;
+
+        return CSocketSendDataBuildResult.Successful;
+    }
+
+    public static int getFrameLength(CSocketDataArgs args)
+    {
+        int textlen = getTextLength(args);
+
+        //SOH(1)+OTL(v)+STX(1)+TXT(v)+ETX(1)+CHK(1)+EOT(1)
+        return 1 + 1 + getLengthSize(textlen) + 1 + textlen + 1 + 1 + 1;
+    }
+
+    static int getTextLength(CSocketDataArgs args)
+    {
+        int textlen = 1;
+
+        for (int n = 0; n < args.getLength(); n++)
+            textlen += getArgLength(args.at(n));
+
+        return textlen;
+    }
+
+    public static int getFrameLength(CSocketDataColumnArgs args)
+    {
+        int textlen = getTextLength(args);
+
+        return 1 + 1 + getLengthSize(textlen) + 1 + textlen + 1 + 1 + 1;
+    }
+
+    static int getTextLength(CSocketDataColumnArgs args)
+    {
+        int textlen = 1;
+
+        for (int n = 0; n < args.getLength(); n++)
+            textlen += getArgLength(args, n);
+
+        return textlen;
+    }
+
+    static int getArgLength(CSocketDataColumnArgs args, int index)
+    {
+        switch (args.getKind(index)) {
+            case CSocketDataTag.INTEGER -> {
+                return 1 + getIntegerSize(args.getLong(index));
+            }
+            case CSocketDataTag.FLOAT -> {
+                return 1 + getFloatSize(args.getDouble(index));
+            }
+            case CSocketDataTag.BOOLEAN -> {
+                return 1 + 1;
+            }
+            default -> {
+                int length = args.getBytesLength(index);
+                return 1 + getLengthSize(length) + length;
+            }
+        }
+    }
+
+    static int getArgLength(IDataType arg)
+    {
+        switch (arg.getDataType()) {
+            case CInteger -> {
+                return 1 + getIntegerSize(((CInteger) arg).getValue());
+            }
+            case CFloat -> {
+                return 1 + getFloatSize(((CFloat) arg).getValue());
+            }
+            case CBoolean -> {
+                return 1 + 1;
+            }
+            case CString, CByteArray -> {
+                int length = getBytesLength(arg);
+                return 1 + getLengthSize(length) + length;
+            }
+            default -> {
+                return 0;
+            }
+        }
+    }
+
+    // Encoding a file region would copy the file into the frame; TcpSocket.send(command, args) sends it with transferTo.
+    static boolean hasFileRegion(CSocketDataArgs args)
+    {
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            if (args.at(n) instanceof CFileRegion)
+                return true;
+        }
+        return false;
+    }
+
+    static ByteBuffer encodeSkeleton(int command, CSocketDataArgs args, int[] holes)
+    {
+        int length = getFrameLength(args);
+
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            if (args.at(n) instanceof CFileRegion)
+                length -= ((CFileRegion) args.at(n)).getLength();
+        }
+
+        ByteBuffer dst = ByteBuffer.allocate(length);
+        write(command, args, dst, holes);
+        return dst.flip();
+    }
+
+    private static void write(int command, CSocketDataArgs args, ByteBuffer dst)
+    {
+        write(command, args, dst, null);
+    }
+
+    private static void write(int command, CSocketDataArgs args, ByteBuffer dst, int[] holes)
+    {
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.BIG_ENDIAN);
+
+        int textlen = getTextLength(args);
+
+        dst.put((byte)0x01);
+        putLength(dst, (byte)0x10, textlen);
+        dst.put((byte)0x02);
+
+        byte checksum = (byte)command;
+        dst.put((byte)command);
+
+        int hole = 0;
+
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            IDataType arg = args.at(n);
+
+            switch (arg.getDataType()) {
+                case CInteger -> {
+                    checksum ^= putInteger(dst, ((CInteger) arg).getValue());
+                }
+                case CFloat -> {
+                    checksum ^= putFloat(dst, ((CFloat) arg).getValue());
+                }
+                case CBoolean -> {
+                    checksum ^= putBoolean(dst, ((CBoolean) arg).getValue());
+                }
+                case CString -> {
+                    checksum ^= putBytes(dst, (byte)0x90, arg);
+                }
+                case CByteArray -> {
+                    if (holes != null && arg instanceof CFileRegion) {
+                        checksum ^= putLength(dst, (byte)0xB0, ((CFileRegion) arg).getLength());
+                        checksum ^= ((CFileRegion) arg).checksum();
+                        holes[hole++] = dst.position();
+                    } else {
+                        checksum ^= putBytes(dst, (byte)0xB0, arg);
+                    }
+                }
+                default -> {}
+            }
+        }
+
+        dst.put((byte)0x03);
+        dst.put(checksum);
+        dst.put((byte)0x04);
+
+        dst.order(order);
+    }
+
+    private static void write(int command, CSocketDataColumnArgs args, ByteBuffer dst)
+    {
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.BIG_ENDIAN);
+
+        int textlen = getTextLength(args);
+
+        dst.put((byte)0x01);
+        putLength(dst, (byte)0x10, textlen);
+        dst.put((byte)0x02);
+
+        byte checksum = (byte)command;
+        dst.put((byte)command);
+
+        for (int n = 0; n < args.getLength(); n++) 
+        {
+            switch (args.getKind(n)) {
+                case CSocketDataTag.INTEGER -> {
+                    checksum ^= putInteger(dst, args.getLong(n));
+                }
+                case CSocketDataTag.FLOAT -> {
+                    checksum ^= putFloat(dst, args.getDouble(n));
+                }
+                case CSocketDataTag.BOOLEAN -> {
+                    checksum ^= putBoolean(dst, args.getBoolean(n));
+                }
+                default -> {
+                    ByteBuffer view = args.getBuffer(n);
+                    checksum ^= putLength(dst, (args.getKind(n) == CSocketDataTag.STRING) ? (byte)0x90 : (byte)0xB0, view.remaining());
+                    checksum ^= checksum(view);
+                    dst.put(view);
+                }
+            }
+        }
+
+        dst.put((byte)0x03);
+        dst.put(checksum);
+        dst.put((byte)0x04);
+
+        dst.order(order);
+    }
+
+    private static byte putInteger(ByteBuffer dst, long i)
+    {
+        switch (getIntegerSize(i)) {
+            case 1 -> { dst.put((byte)0x31).put((byte)i); return (byte)(0x31 ^ (byte)i); }
+            case 2 -> { dst.put((byte)0x32).putShort((short)i); return (byte)(0x32 ^ fold(i, 2)); }
+            case 4 -> { dst.put((byte)0x34).putInt((int)i); return (byte)(0x34 ^ fold(i, 4)); }
+            default -> { dst.put((byte)0x38).putLong(i); return (byte)(0x38 ^ fold(i, 8)); }
+        }
+    }
+
+    private static byte putFloat(ByteBuffer dst, double f)
+    {
+        if (getFloatSize(f) == 4) {
+            dst.put((byte)0x54).putFloat((float)f);
+            return (byte)(0x54 ^ fold(Float.floatToRawIntBits((float)f), 4));
+        }
+
+        dst.put((byte)0x58).putDouble(f);
+        return (byte)(0x58 ^ fold(Double.doubleToRawLongBits(f), 8));
+    }
+
+    private static byte putBoolean(ByteBuffer dst, boolean value)
+    {
+        byte b = (byte)(value ? 1 : 0);
+        dst.put((byte)0x71).put(b);
+        return (byte)(0x71 ^ b);
+    }
+
+    private static byte putBytes(ByteBuffer dst, byte tag, IDataType arg)
+    {
+        int length = getBytesLength(arg);
+        byte checksum = putLength(dst, tag, length);
+
+        if (arg instanceof CString && !((CString) arg).isView()) 
+        {
+            byte[] s = ((CString) arg).getBytes();
+            dst.put(s, 0, s.length);
+            return (byte)(checksum ^ checksum(s, 0, s.length));
+        }
+
+        if (arg instanceof CByteArray && !((CByteArray) arg).isView()) 
+        {
+            byte[] ba = ((CByteArray) arg).getValue();
+            dst.put(ba, 0, ba.length);
+            return (byte)(checksum ^ checksum(ba, 0, ba.length));
+        }
+
+        ByteBuffer view = (arg instanceof CString) ? ((CString) arg).getBuffer() : ((CByteArray) arg).getBuffer();
+        checksum ^= checksum(view);
+        dst.put(view);
+        return checksum;
+    }
+
+    static byte putLength(ByteBuffer dst, byte tag, int length)
+    {
+        switch (getLengthSize(length)) {
+            case 1 -> { dst.put((byte)(tag | 0x01)).put((byte)length); return (byte)((tag | 0x01) ^ (byte)length); }
+            case 2 -> { dst.put((byte)(tag | 0x02)).putShort((short)length); return (byte)((tag | 0x02) ^ fold(length, 2)); }
+            default -> { dst.put((byte)(tag | 0x04)).putInt(length); return (byte)((tag | 0x04) ^ fold(length, 4)); }
+        }
+    }
+
+    static int getIntegerSize(long i)
+    {
+        if (Byte.MIN_VALUE <= i && i <= Byte.MAX_VALUE) return 1;
+        if (Short.MIN_VALUE <= i && i <= Short.MAX_VALUE) return 2;
+        if (Integer.MIN_VALUE <= i && i <= Integer.MAX_VALUE) return 4;
+        return 8;
+    }
+
+    static int getFloatSize(double f)
+    {
+        return (Math.abs(f) <= Float.MAX_VALUE) ? 4 : 8;
+    }
+
+    static int getLengthSize(int length)
+    {
+        if (length <= Byte.MAX_VALUE) return 1;
+        if (length <= Short.MAX_VALUE) return 2;
+        return 4;
+    }
+
+    static int getBytesLength(IDataType arg)
+    {
+        if (arg instanceof CString)
+            return ((CString) arg).isView() ? ((CString) arg).getBuffer().remaining() : ((CString) arg).getBytes().length;
+
+        return ((CByteArray) arg).getLength();
+    }
+
+    private static byte fold(long v, int size)
+    {
+        byte b = 0;
+        for (int n = 0; n < size; n++)
+            b ^= (byte)(v >>> (n * 8));
+        return b;
+    }
+
+    static int getCommand(ByteBuffer frame)
+    {
+        int position = frame.position();
+
+        if (frame.remaining() < 2)
+            return -1;
+
+        int tag = frame.get(position + 1) & 0xFF;
+
+        if (CSocketDataTag.KIND[tag] != CSocketDataTag.TEXTLENGTH)
+            return -1;
+
+        //SOH(1)+OTL(1+n)+STX(1)
+        int index = position + 3 + CSocketDataTag.WIDTH[tag];
+        return (index < frame.limit()) ? frame.get(index) & 0xFF : -1;
+    }
+
+    static byte checksum(byte[] b, int offset, int length)
+    {
+        long x = 0;
+        int n = 0;
+
+        for (; n + 8 <= length; n += 8)
+            x ^= (long)LONG_VIEW.get(b, offset + n);
+
+        byte checksum = fold(x, 8);
+
+        for (; n < length; n++)
+            checksum ^= b[offset + n];
+
+        return checksum;
+    }
+
+    static byte checksum(ByteBuffer b)
+    {
+        return checksum(b, b.position(), b.remaining());
+    }
+
+    static byte checksum(ByteBuffer b, int offset, int length)
+    {
+        if (b.hasArray())
+            return checksum(b.array(), b.arrayOffset() + offset, length);
+
+        long x = 0;
+        int n = offset;
+        int end = offset + length;
+
+        for (; n + 8 <= end; n += 8)
+            x ^= b.getLong(n);
+
+        byte checksum = fold(x, 8);
+
+        for (; n < end; n++)
+            checksum ^= b.get(n);
+
+        return checksum;
+    }
+}
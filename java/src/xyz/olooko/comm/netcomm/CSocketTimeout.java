@@ -0,0 +1,84 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CSocketTimeout
+{
+    private CSocketTimer _timer;
+    private Runnable _task;
+    private volatile long _deadline;
+    // Bit 0 is the armed flag and the rest a generation that every arm, cancel and fire advances.
+    private AtomicLong _state;
+    private AtomicBoolean _queued;
+
+    CSocketTimeout _prev;
+    CSocketTimeout _next;
+    int _bucket;
+
+    public boolean isArmed()
+    {
+        return (_state.get() & 1) != 0;
+    }
+
+    public long getDeadline()
+    {
+        return _deadline;
+    }
+
+    public CSocketTimeout(CSocketTimer timer, Runnable task)
+    {
+        _timer = timer;
+        _task = task;
+        _deadline = 0;
+        _state = new AtomicLong(0);
+        _queued = new AtomicBoolean(false);
+        _bucket = -1;
+    }
+
+    public void arm(long delayMillis)
+    {
+        _deadline = CSocketTimer.now() + delayMillis;
+        _state.getAndUpdate((state) -> (state & ~1L) + 3);
+
+        if (_queued.compareAndSet(false, true))
+            _timer.add(this);
+    }
+
+    public void cancel()
+    {
+        _state.getAndUpdate((state) -> (state & ~1L) + 2);
+    }
+
+    long getState()
+    {
+        return _state.get();
+    }
+
+    boolean isExpired(long now)
+    {
+        return _deadline <= now;
+    }
+
+    boolean dequeue()
+    {
+        _queued.set(false);
+
+        // arm() may have run after the timer saw this timeout as cancelled.
+        return isArmed() && _queued.compareAndSet(false, true);
+    }
+
+    // Fires only if nothing armed or cancelled the timeout since the timer read state, so a re-arm from the
+    // receive thread is never lost to an expiry that was already under way.
+    void fire(long state)
+    {
+        boolean fired = (state & 1) != 0 && _state.compareAndSet(state, state + 1);
+
+        // Clear the queued flag so the task, or a concurrent arm(), can queue it again.
+        if (dequeue())
+            _timer.add(this);
+
+        if (fired)
+            _task.run();
+    }
+}
@@ -0,0 +1,169 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class CSocketTimer implements Runnable
+{
+    private static volatile CSocketTimer _shared;
+
+    private CSocketTimeout[] _wheel;
+    private long _tickMillis;
+    private long _tick;
+    private ConcurrentLinkedQueue<CSocketTimeout> _pending;
+    private Thread _thread;
+    private volatile boolean _running;
+
+    public static CSocketTimer getShared()
+    {
+        if (_shared == null) 
+        {
+            synchronized (CSocketTimer.class) 
+            {
+                if (_shared == null)
+                    _shared = new CSocketTimer(100, 512);
+            }
+        }
+        return _shared;
+    }
+
+    public long getTickMillis()
+    {
+        return _tickMillis;
+    }
+
+    public CSocketTimer(long tickMillis, int wheelSize)
+    {
+        _wheel = new CSocketTimeout[wheelSize];
+        _tickMillis = tickMillis;
+        _tick = now() / _tickMillis - 1;
+        _pending = new ConcurrentLinkedQueue<CSocketTimeout>();
+        _running = true;
+
+        _thread = new Thread(this, "netcomm-timer");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    public CSocketTimeout newTimeout(Runnable task)
+    {
+        return new CSocketTimeout(this, task);
+    }
+
+    public void close()
+    {
+        _running = false;
+        _thread.interrupt();
+    }
+
+    static long now()
+    {
+        return System.nanoTime() / 1000000;
+    }
+
+    void add(CSocketTimeout timeout)
+    {
+        _pending.add(timeout);
+    }
+
+    @Override
+    public void run()
+    {
+        while (_running)
+        {
+            long sleep = (_tick + 2) * _tickMillis - now();
+
+            if (sleep > 0) 
+            {
+                try {
+                    Thread.sleep(sleep);
+                }
+                catch (Exception e) {}
+                continue;
+            }
+
+            long current = now() / _tickMillis;
+
+            CSocketTimeout timeout;
+            while ((timeout = _pending.poll()) != null)
+                insert(timeout, _tick + 1);
+
+            while (_tick < current - 1)
+            {
+                _tick++;
+                expire((int)(_tick % _wheel.length), _tick);
+            }
+        }
+    }
+
+    private void insert(CSocketTimeout timeout, long earliest)
+    {
+        long tick = Math.max(timeout.getDeadline() / _tickMillis, earliest);
+        int bucket = (int)(tick % _wheel.length);
+
+        timeout._bucket = bucket;
+        timeout._prev = null;
+        timeout._next = _wheel[bucket];
+
+        if (_wheel[bucket] != null)
+            _wheel[bucket]._prev = timeout;
+
+        _wheel[bucket] = timeout;
+    }
+
+    private void remove(CSocketTimeout timeout)
+    {
+        if (timeout._prev != null)
+            timeout._prev._next = timeout._next;
+        else
+            _wheel[timeout._bucket] = timeout._next;
+
+        if (timeout._next != null)
+            timeout._next._prev = timeout._prev;
+
+        timeout._prev = null;
+        timeout._next = null;
+        timeout._bucket = -1;
+    }
+
+    private void expire(int bucket, long tick)
+    {
+        long now = (tick + 1) * _tickMillis;
+        CSocketTimeout timeout = _wheel[bucket];
+
+        while (timeout != null)
+        {
+            CSocketTimeout next = timeout._next;
+            long state = timeout.getState();
+
+            if ((state & 1) == 0) 
+            {
+                remove(timeout);
+
+                if (timeout.dequeue())
+                    insert(timeout, tick + 1);
+            }
+            else if (!timeout.isExpired(now)) 
+            {
+                // Re-armed since it was inserted, or due in a later round of the wheel.
+                long due = timeout.getDeadline() / _tickMillis;
+
+                if (due % _wheel.length != bucket) 
+                {
+                    remove(timeout);
+                    insert(timeout, tick + 1);
+                }
+            }
+            else 
+            {
+                remove(timeout);
+
+                try {
+                    timeout.fire(state);
+                }
+                catch (Exception e) {}
+            }
+
+            timeout = next;
+        }
+    }
+}
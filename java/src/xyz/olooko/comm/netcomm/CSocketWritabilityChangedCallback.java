@@ -0,0 +1,6 @@
+package xyz.olooko.comm.netcomm;
+
+public interface CSocketWritabilityChangedCallback
+{
+    void callMethod(CSocket socket, boolean writable);
+}
@@ -0,0 +1,28 @@
+package xyz.olooko.comm.netcomm;
+
+public class CSocketWriteWatermark
+{
+    private long _low;
+    private long _high;
+
+    public long getLow() 
+    {
+        return _low;
+    }
+
+    public long getHigh() 
+    {
+        return _high;
+    }
+
+    public CSocketWriteWatermark(long low, long high)
+    {
+        _high = Math.max(0, high);
+        _low = Math.min(Math.max(0, low), _high);
+    }
+
+    public static CSocketWriteWatermark getDefault()
+    {
+        return new CSocketWriteWatermark(32 * 1024, 64 * 1024);
+    }
+}
@@ -1,17 +1,56 @@
 package xyz.olooko.comm.netcomm;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
 public class CString implements IDataType
 {
     private String _value;
+    private ByteBuffer _buffer;
+    private byte[] _bytes;
 
+    // Decoding keeps the raw bytes and detaches the value from the receive buffer, as in CByteArray.
     public String getValue() {
+        if (_value == null) {
+            byte[] bytes = new byte[_buffer.remaining()];
+            _buffer.duplicate().get(bytes);
+            _bytes = bytes;
+            _value = Charset.defaultCharset().decode(ByteBuffer.wrap(bytes)).toString();
+            _buffer = null;
+        }
         return _value;
     }
 
+    public ByteBuffer getBuffer() {
+        ByteBuffer buffer = _buffer;
+        if (buffer != null)
+            return buffer.duplicate();
+        return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+    }
+
+    byte[] getBytes() {
+        if (_bytes == null)
+            _bytes = getValue().getBytes();
+        return _bytes;
+    }
+
+    public boolean isView() {
+        return _buffer != null;
+    }
+
     public CString(String value) {
         _value = value;
     }
 
+    // Decoded lazily; a view over the receive buffer is only valid until the received callback returns.
+    public CString(ByteBuffer buffer) {
+        _buffer = buffer.asReadOnlyBuffer();
+    }
+
+    public CString copy() {
+        return new CString(getValue());
+    }
+
     @Override
     public DataType getDataType() {
         return DataType.CString;
@@ -19,6 +58,6 @@ public class CString implements IDataType
 
     @Override
     public String toString() {
-        return _value;
+        return getValue();
     }
 }
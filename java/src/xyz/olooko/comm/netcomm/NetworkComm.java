@@ -1,46 +1,183 @@
 package xyz.olooko.comm.netcomm;
 
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
 
 public class NetworkComm {
     
+    private static volatile Executor _executor = (task) -> new Thread(task).start();
+    private static final CSocketMetrics _metrics = new CSocketMetrics(null);
+
+    public static CSocketMetrics getMetrics()
+    {
+        return _metrics;
+    }
+
+    public static void setExecutor(Executor executor)
+    {
+        _executor = executor;
+    }
+
+    public static void setThreadFactory(ThreadFactory factory)
+    {
+        _executor = (task) -> factory.newThread(task).start();
+    }
+
+    public static boolean useVirtualThreads()
+    {
+        // Thread.ofVirtual() is looked up reflectively so the library still runs on pre-21 JDKs.
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            ThreadFactory factory = (ThreadFactory)Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+
+            setThreadFactory(factory);
+            return true;
+        } 
+        catch (Exception e) {}
+
+        return false;
+    }
+
+    public static void usePlatformThreads()
+    {
+        _executor = (task) -> new Thread(task).start();
+    }
+
+    static void execute(Runnable task)
+    {
+        _executor.execute(task);
+    }
+
     public static TcpSocket TcpConnect(CSocketAddress address)
     {
         Socket s = null;
 
         try {
-            s = new Socket(address.getHost(), address.getPort());
+            s = SocketChannel.open(new InetSocketAddress(address.getInetAddress(), address.getPort())).socket();
         } 
         catch (Exception e) {}
 
         return new TcpSocket(s);
     }
 
+    public static TcpSocket TcpConnect(CSocketAddress address, CSocketEventLoopGroup group)
+    {
+        SocketChannel c = null;
+
+        try {
+            c = SocketChannel.open(new InetSocketAddress(address.getInetAddress(), address.getPort()));
+            c.configureBlocking(false);
+        } 
+        catch (Exception e) {
+            try {
+                if (c != null)
+                    c.close();
+            }
+            catch (Exception ex) {}
+
+            c = null;
+        }
+
+        return new TcpSocket(c, group.next());
+    }
+
     public static TcpServer TcpListen(CSocketAddress address)
     {
         ServerSocket s = null;
 
         try {
-            s = new ServerSocket(address.getPort(), 0, address.getInetAddress());
+            s = ServerSocketChannel.open().bind(new InetSocketAddress(address.getInetAddress(), address.getPort())).socket();
         } 
         catch (Exception e) {}
 
         return new TcpServer(s);
     }
 
+    public static TcpServer TcpListen(CSocketAddress address, CSocketEventLoopGroup group)
+    {
+        ServerSocketChannel c = null;
+
+        try {
+            c = ServerSocketChannel.open();
+            c.bind(new InetSocketAddress(address.getInetAddress(), address.getPort()));
+            c.configureBlocking(false);
+        } 
+        catch (Exception e) {
+            c = null;
+        }
+
+        return new TcpServer(c, group);
+    }
+
     public static UdpSocket UdpCast(CSocketAddress address)
     {
         DatagramSocket s = null;
 
         try {
-            s = new DatagramSocket(address.getPort(), address.getInetAddress());
+            s = DatagramChannel.open().bind(new InetSocketAddress(address.getInetAddress(), address.getPort())).socket();
         } 
         catch (Exception e) {}
         
         return new UdpSocket(s);
     }
-}
 
+    public static UdpListener UdpListen(CSocketAddress address, int shards)
+    {
+        return UdpListen(address, shards, true);
+    }
 
+    // With reusePort each shard binds its own SO_REUSEPORT socket. Without it, or where SO_REUSEPORT is
+    // unavailable, the shards share one socket fed by a single reader; isReusePort() reports which was used.
+    public static UdpListener UdpListen(CSocketAddress address, int shards, boolean reusePort)
+    {
+        InetSocketAddress local = new InetSocketAddress(address.getInetAddress(), address.getPort());
+        DatagramSocket[] sockets = new DatagramSocket[Math.max(1, shards)];
+        DatagramChannel c = null;
+
+        try {
+            c = DatagramChannel.open();
+
+            if (reusePort && sockets.length > 1 && c.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))
+            {
+                for (int n = 0; n < sockets.length; n++)
+                {
+                    if (n > 0)
+                        c = DatagramChannel.open();
+
+                    c.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                    sockets[n] = c.bind(local).socket();
+
+                    if (n == 0)
+                        local = (InetSocketAddress)sockets[0].getLocalSocketAddress();
+                }
+
+                return new UdpListener(sockets);
+            }
+
+            return new UdpListener(c.bind(local).socket(), sockets.length);
+        } 
+        catch (Exception e) {
+            try {
+                if (c != null)
+                    c.close();
+            }
+            catch (Exception ex) {}
+
+            for (DatagramSocket s : sockets)
+            {
+                if (s != null)
+                    s.close();
+            }
+        }
+
+        return new UdpListener(null, sockets.length);
+    }
+}
@@ -0,0 +1,255 @@
+package xyz.olooko.comm.netcomm;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TcpConnectionPool
+{
+    private ConcurrentHashMap<CSocketAddress, Entry> _entries;
+    private CSocketEventLoopGroup _group;
+    private int _minSize;
+    private int _maxSize;
+    private long _idleTimeout;
+    private CSocketTimeout _evictor;
+    private volatile boolean _closed;
+
+    public int getMinSize()
+    {
+        return _minSize;
+    }
+
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    public int getIdleCount(CSocketAddress address)
+    {
+        Entry entry = _entries.get(address);
+        return (entry != null) ? entry._idle.size() : 0;
+    }
+
+    public int getBorrowedCount(CSocketAddress address)
+    {
+        Entry entry = _entries.get(address);
+        return (entry != null) ? entry._borrowed.size() : 0;
+    }
+
+    public TcpConnectionPool(int minSize, int maxSize, long idleTimeout)
+    {
+        this(minSize, maxSize, idleTimeout, null);
+    }
+
+    public TcpConnectionPool(int minSize, int maxSize, long idleTimeout, CSocketEventLoopGroup group)
+    {
+        _entries = new ConcurrentHashMap<CSocketAddress, Entry>();
+        _group = group;
+        _maxSize = Math.max(1, maxSize);
+        _minSize = Math.min(Math.max(0, minSize), _maxSize);
+        _idleTimeout = idleTimeout;
+        _closed = false;
+
+        _evictor = CSocketTimer.getShared().newTimeout(this::evict);
+        _evictor.arm(period());
+    }
+
+    public void prepare(CSocketAddress address)
+    {
+        fill(entry(address));
+    }
+
+    public TcpSocket borrow(CSocketAddress address)
+    {
+        return borrow(address, -1);
+    }
+
+    public TcpSocket borrow(CSocketAddress address, long timeoutMillis)
+    {
+        if (_closed)
+            return null;
+
+        Entry entry = entry(address);
+
+        try {
+            if (timeoutMillis < 0)
+                entry._permits.acquire();
+            else if (!entry._permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+                return null;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        TcpSocket socket = null;
+        Idle idle;
+
+        while ((idle = entry._idle.pollFirst()) != null)
+        {
+            if (idle._socket.isConnected() && idle._socket.probe())
+            {
+                socket = idle._socket;
+                break;
+            }
+            idle._socket.close();
+        }
+
+        if (socket == null)
+            socket = connect(address);
+
+        if (!socket.isConnected())
+        {
+            entry._permits.release();
+            return socket;
+        }
+
+        entry._borrowed.add(socket);
+        return socket;
+    }
+
+    public void release(TcpSocket socket)
+    {
+        Entry entry = _entries.get(socket.getRemoteAddress());
+
+        if (entry == null || !entry._borrowed.remove(socket))
+            return;
+
+        if (!_closed && socket.isConnected())
+            entry._idle.offerFirst(new Idle(socket));
+        else
+            socket.close();
+
+        entry._permits.release();
+    }
+
+    public void invalidate(TcpSocket socket)
+    {
+        socket.close();
+        release(socket);
+    }
+
+    public void close()
+    {
+        _closed = true;
+        _evictor.cancel();
+
+        for (Entry entry : _entries.values())
+        {
+            Idle idle;
+            while ((idle = entry._idle.pollFirst()) != null)
+                idle._socket.close();
+        }
+    }
+
+    private Entry entry(CSocketAddress address)
+    {
+        return _entries.computeIfAbsent(address, (key) -> new Entry(key, _maxSize));
+    }
+
+    private TcpSocket connect(CSocketAddress address)
+    {
+        if (_group != null)
+            return NetworkComm.TcpConnect(address, _group);
+
+        return NetworkComm.TcpConnect(address);
+    }
+
+    private long period()
+    {
+        return Math.max(CSocketTimer.getShared().getTickMillis(), _idleTimeout / 2);
+    }
+
+    private void fill(Entry entry)
+    {
+        if (!entry._filling.compareAndSet(false, true))
+            return;
+
+        try {
+            while (!_closed && entry.getLength() < _minSize)
+            {
+                TcpSocket socket = connect(entry._address);
+
+                if (!socket.isConnected())
+                    break;
+
+                entry._idle.offerLast(new Idle(socket));
+            }
+        }
+        finally {
+            entry._filling.set(false);
+        }
+    }
+
+    private void evict()
+    {
+        if (_closed)
+            return;
+
+        long now = CSocketTimer.now();
+
+        for (Entry entry : _entries.values())
+        {
+            for (Idle idle : entry._idle)
+            {
+                if (!(idle._socket.isConnected() && idle._socket.probe()) && entry._idle.removeFirstOccurrence(idle))
+                    idle._socket.close();
+            }
+
+            Idle idle;
+            while (entry.getLength() > _minSize && (idle = entry._idle.peekLast()) != null && now - idle._since >= _idleTimeout)
+            {
+                if (entry._idle.removeLastOccurrence(idle))
+                    idle._socket.close();
+            }
+
+            if (entry.getLength() < _minSize && !entry._filling.get())
+                NetworkComm.execute(() -> fill(entry));
+        }
+
+        _evictor.arm(period());
+    }
+
+    private static class Entry
+    {
+        CSocketAddress _address;
+        Semaphore _permits;
+        ConcurrentLinkedDeque<Idle> _idle;
+        Set<TcpSocket> _borrowed;
+        AtomicBoolean _filling;
+
+        Entry(CSocketAddress address, int maxSize)
+        {
+            _address = address;
+            _permits = new Semaphore(maxSize, true);
+            _idle = new ConcurrentLinkedDeque<Idle>();
+            _borrowed = ConcurrentHashMap.newKeySet();
+            _filling = new AtomicBoolean(false);
+        }
+
+        int getLength()
+        {
+            return _idle.size() + _borrowed.size();
+        }
+    }
+
+    private static class Idle
+    {
+        TcpSocket _socket;
+        long _since;
+
+        Idle(TcpSocket socket)
+        {
+            _socket = socket;
+            _since = CSocketTimer.now();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package xyz.olooko.comm.netcomm;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TcpRpcClient
+{
+    // Requests and replies travel in their own commands as [id, command, args...], so an ordinary
+    // frame whose first argument happens to be an integer is never taken for a reply.
+    public static final int REQUEST_COMMAND = 0xFE;
+    public static final int REPLY_COMMAND = 0xFF;
+
+    private TcpSocket _socket;
+    private ConcurrentHashMap<Long, CompletableFuture<CSocketReceivedData>> _pending;
+    private AtomicLong _sequence;
+    private long _timeout;
+    private Executor _executor;
+    private volatile CSocketReceivedCallback _callback;
+
+    public TcpSocket getSocket()
+    {
+        return _socket;
+    }
+
+    public int getPendingCount()
+    {
+        return _pending.size();
+    }
+
+    public long getTimeout()
+    {
+        return _timeout;
+    }
+
+    public void setTimeout(long millis)
+    {
+        _timeout = millis;
+    }
+
+    public void setReceivedCallback(CSocketReceivedCallback callback)
+    {
+        _callback = callback;
+    }
+
+    public TcpRpcClient(TcpSocket socket)
+    {
+        this(socket, ForkJoinPool.commonPool());
+    }
+
+    // Timed-out requests are failed on executor, so stages chained on the future never run on the shared timer thread.
+    public TcpRpcClient(TcpSocket socket, Executor executor)
+    {
+        _socket = socket;
+        _executor = executor;
+        _pending = new ConcurrentHashMap<Long, CompletableFuture<CSocketReceivedData>>();
+        _sequence = new AtomicLong(0);
+        _timeout = 15000;
+
+        _socket.setReceivedCallback(this::received);
+    }
+
+    public CompletableFuture<CSocketReceivedData> request(int command, CSocketDataArgs args)
+    {
+        return request(command, args, _timeout);
+    }
+
+    public CompletableFuture<CSocketReceivedData> request(int command, CSocketDataArgs args, long timeoutMillis)
+    {
+        CompletableFuture<CSocketReceivedData> future = new CompletableFuture<CSocketReceivedData>();
+
+        if (command == REQUEST_COMMAND || command == REPLY_COMMAND)
+        {
+            future.completeExceptionally(new IOException(CSocketSendDataBuildResult.CommandValueOverflowError.toString()));
+            return future;
+        }
+
+        long id = _sequence.incrementAndGet();
+        CSocketSendData data = new CSocketSendData(REQUEST_COMMAND, wrap(id, command, args));
+
+        if (data.getBuildResult() != CSocketSendDataBuildResult.Successful)
+        {
+            future.completeExceptionally(new IOException(data.getBuildResult().toString()));
+            return future;
+        }
+
+        _pending.put(id, future);
+
+        if (timeoutMillis > 0)
+        {
+            CSocketTimeout timeout = CSocketTimer.getShared().newTimeout(() -> {
+                if (_pending.remove(id, future))
+                    _executor.execute(() -> future.completeExceptionally(new TimeoutException()));
+            });
+            timeout.arm(timeoutMillis);
+            future.whenComplete((result, error) -> timeout.cancel());
+        }
+
+        // The future is pending before the send, so a close racing with it either fails it through
+        // received() or is caught by the check below.
+        _socket.send(data);
+
+        if (!_socket.isConnected() && _pending.remove(id, future))
+            future.completeExceptionally(new IOException("socket is not connected"));
+
+        return future;
+    }
+
+    public void close()
+    {
+        _socket.close();
+        fail(new IOException("socket is closed"));
+    }
+
+    public static long getCorrelationId(CSocketReceivedData request)
+    {
+        return getCorrelationId(request, REQUEST_COMMAND);
+    }
+
+    public static CSocketReceivedData getRequest(CSocketReceivedData request)
+    {
+        return unwrap(request, REQUEST_COMMAND);
+    }
+
+    public static void reply(TcpSocket socket, CSocketReceivedData request, int command, CSocketDataArgs args)
+    {
+        long id = getCorrelationId(request);
+
+        if (id >= 0)
+            reply(socket, id, command, args);
+    }
+
+    public static void reply(TcpSocket socket, long correlationId, int command, CSocketDataArgs args)
+    {
+        socket.send(new CSocketSendData(REPLY_COMMAND, wrap(correlationId, command, args)));
+    }
+
+    private void received(CSocket socket, CSocketReceivedData data)
+    {
+        if (data.getResult() == CSocketReceivedDataResult.Completed)
+        {
+            long id = getCorrelationId(data, REPLY_COMMAND);
+            CompletableFuture<CSocketReceivedData> future = (id >= 0) ? _pending.remove(id) : null;
+
+            if (future != null)
+            {
+                future.complete(unwrap(data, REPLY_COMMAND));
+                return;
+            }
+        }
+        else if (data.getResult() != CSocketReceivedDataResult.Interrupted)
+        {
+            fail(new IOException(data.getResult().toString()));
+        }
+
+        CSocketReceivedCallback callback = _callback;
+
+        if (callback != null)
+            callback.callMethod(socket, data);
+    }
+
+    private void fail(Throwable error)
+    {
+        for (Long id : _pending.keySet())
+        {
+            CompletableFuture<CSocketReceivedData> future = _pending.remove(id);
+
+            if (future != null)
+                future.completeExceptionally(error);
+        }
+    }
+
+    private static long getCorrelationId(CSocketReceivedData data, int envelope)
+    {
+        CSocketDataArgs args = data.getArgs();
+
+        if (data.getCommand() == envelope && args.getLength() >= 2 && args.at(0) instanceof CInteger && args.at(1) instanceof CInteger)
+            return ((CInteger)args.at(0)).getValue();
+
+        return -1;
+    }
+
+    private static CSocketReceivedData unwrap(CSocketReceivedData data, int envelope)
+    {
+        if (getCorrelationId(data, envelope) < 0)
+            return null;
+
+        int command = (int)((CInteger)data.getArgs().at(1)).getValue();
+        return new CSocketReceivedData(command, strip(data.getArgs()), data.getResult(), data.getRemoteAddress());
+    }
+
+    private static CSocketDataArgs wrap(long id, int command, CSocketDataArgs args)
+    {
+        CSocketDataArgs result = new CSocketDataArgs();
+        result.add(new CInteger(id));
+        result.add(new CInteger(command));
+
+        for (int n = 0; n < args.getLength(); n++)
+            result.add(args.at(n));
+
+        return result;
+    }
+
+    private static CSocketDataArgs strip(CSocketDataArgs args)
+    {
+        CSocketDataArgs result = new CSocketDataArgs();
+
+        // Zero-copy views point into the parser's buffer, which is reused once the callback returns.
+        for (int n = 2; n < args.getLength(); n++)
+            result.add(CSocketReceivedData.own(args.at(n)));
+
+        return result;
+    }
+}
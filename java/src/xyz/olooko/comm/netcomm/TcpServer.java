@@ -1,22 +1,49 @@
 package xyz.olooko.comm.netcomm;
 
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 
 public class TcpServer implements Runnable 
 {
     private ServerSocket _server;
     private TcpServerAcceptCallback _callback;
+    private ServerSocketChannel _channel;
+    private CSocketEventLoopGroup _group;
+    private CSocketMetrics _metrics;
 
     public TcpServer(ServerSocket s) 
     {
         _server = s; 
+        _metrics = new CSocketMetrics(NetworkComm.getMetrics());
+
+        if (isRunning())
+            _metrics.register("TcpServer", new CSocketAddress((InetSocketAddress)_server.getLocalSocketAddress()));
+    }
+
+    public TcpServer(ServerSocketChannel c, CSocketEventLoopGroup group) 
+    {
+        _metrics = new CSocketMetrics(NetworkComm.getMetrics());
+        _server = (c != null) ? c.socket() : null;
+        _channel = c;
+        _group = group;
+
+        if (isRunning())
+            _metrics.register("TcpServer", new CSocketAddress((InetSocketAddress)_server.getLocalSocketAddress()));
     }
     
     public boolean isRunning() 
     {
         return _server != null;
     }
+
+    public CSocketMetrics getMetrics()
+    {
+        return _metrics;
+    }
     
     public void close() 
     {
@@ -25,14 +52,50 @@ public class TcpServer implements Runnable
             _server = null;
         } 
         catch (Exception e) {}       
+
+        _metrics.unregister();
     }
 
     public void setAcceptCallback(TcpServerAcceptCallback callback) 
     {
         _callback = callback;
 
-        Thread t = new Thread(this);
-        t.start();
+        if (_group != null && isRunning())
+        {
+            CSocketEventLoop loop = _group.next();
+            loop.execute(() -> {
+                loop.register(_channel, SelectionKey.OP_ACCEPT, this);
+            });
+        }
+        else
+        {
+            NetworkComm.execute(this);
+        }
+    }
+
+    void selected(SelectionKey key)
+    {
+        if (!key.isValid() || !key.isAcceptable())
+            return;
+
+        while (true) 
+        {
+            SocketChannel c = null;
+
+            try {
+                c = _channel.accept();
+
+                if (c != null)
+                    c.configureBlocking(false);
+            } 
+            catch (Exception e) {}
+
+            if (c == null)
+                break;
+
+            _metrics.accepted();
+            _callback.callMethod(new TcpSocket(c, _group.next(), _metrics));
+        }
     }
 
     @Override
@@ -50,7 +113,10 @@ public class TcpServer implements Runnable
             } 
             catch (Exception e) {}
 
-            _callback.callMethod(new TcpSocket(s));
+            if (s != null)
+                _metrics.accepted();
+
+            _callback.callMethod(new TcpSocket(s, _metrics));
         }
     }
 }
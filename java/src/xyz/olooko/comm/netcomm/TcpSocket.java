@@ -2,6 +2,9 @@ package xyz.olooko.comm.netcomm;
 
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
 
 public class TcpSocket extends CSocket
 {
@@ -9,7 +12,7 @@ public class TcpSocket extends CSocket
 
     public Boolean isConnected() 
     {
-        return isAvailable() && _socket.isConnected();
+        return isAvailable() && _socket.isConnected() && !_socket.isClosed();
     }
     
     public CSocketAddress getRemoteAddress()
@@ -19,7 +22,12 @@ public class TcpSocket extends CSocket
 
     public TcpSocket(Socket s) 
     { 
-        super(s, CSocketProtocolType.Tcp);
+        this(s, NetworkComm.getMetrics());
+    }
+
+    TcpSocket(Socket s, CSocketMetrics metrics) 
+    { 
+        super(s, CSocketProtocolType.Tcp, metrics);
 
         _remoteAddress = new CSocketAddress("0.0.0.0", 0);
 
@@ -30,9 +38,94 @@ public class TcpSocket extends CSocket
         }  
     }
 
+    public TcpSocket(SocketChannel c, CSocketEventLoop loop) 
+    { 
+        this(c, loop, NetworkComm.getMetrics());
+    }
+
+    TcpSocket(SocketChannel c, CSocketEventLoop loop, CSocketMetrics metrics) 
+    { 
+        super(c, loop, CSocketProtocolType.Tcp, metrics);
+
+        _remoteAddress = new CSocketAddress("0.0.0.0", 0);
+
+        if (c != null) 
+        {
+            InetSocketAddress address = (InetSocketAddress)c.socket().getRemoteSocketAddress();
+            _remoteAddress = new CSocketAddress(address.getAddress(), address.getPort());
+        }  
+    }
+
     public void send(CSocketSendData data)
     {
         super.send(data, null);
     }
+
+    public void send(ByteBuffer frame)
+    {
+        super.send(frame, null);
+    }
+
+    // CFileRegion args are written with FileChannel.transferTo; on a blocking socket this
+    // needs a channel-backed socket, otherwise FileRegionNotSupportedError is returned.
+    public CSocketSendDataBuildResult send(int command, CSocketDataArgs args)
+    {
+        return super.transfer(command, args);
+    }
+
+    public void sendAll(List<CSocketSendData> data)
+    {
+        super.sendAll(data);
+    }
+
+    public void flush()
+    {
+        super.flush();
+    }
+
+    public CSocketFlushPolicy getFlushPolicy()
+    {
+        return super.getFlushPolicy();
+    }
+
+    public void setFlushPolicy(CSocketFlushPolicy policy)
+    {
+        super.setFlushPolicy(policy);
+    }
+
+    public boolean trySend(CSocketSendData data)
+    {
+        return super.trySend(data);
+    }
+
+    public boolean isWritable()
+    {
+        return super.isWritable();
+    }
+
+    public int getQueuedFrames()
+    {
+        return super.getQueuedFrames();
+    }
+
+    public long getQueuedBytes()
+    {
+        return super.getQueuedBytes();
+    }
+
+    public CSocketWriteWatermark getWriteWatermark()
+    {
+        return super.getWriteWatermark();
+    }
+
+    public void setWriteWatermark(CSocketWriteWatermark watermark)
+    {
+        super.setWriteWatermark(watermark);
+    }
+
+    public void setWritabilityChangedCallback(CSocketWritabilityChangedCallback callback)
+    {
+        super.setWritabilityChangedCallback(callback);
+    }
 }
 
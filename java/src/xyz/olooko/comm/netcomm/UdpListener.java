@@ -0,0 +1,219 @@
+package xyz.olooko.comm.netcomm;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class UdpListener implements Runnable
+{
+    private static final int DATAGRAM_SIZE = 65536;
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private UdpSocket[] _shards;
+    private boolean _reusePort;
+    private CSocketMetrics _metrics;
+
+    private DatagramSocket _socket;
+    private Worker[] _workers;
+    private AtomicBoolean _started;
+
+    public boolean isAvailable() 
+    {
+        for (UdpSocket shard : _shards) 
+        {
+            if (!shard.isAvailable())
+                return false;
+        }
+        return _shards.length > 0;
+    }
+
+    // Either way each peer stays on one shard; this reports whether the kernel or the listener's reader does the pinning.
+    public boolean isReusePort() 
+    {
+        return _reusePort;
+    }
+
+    public int getLength() 
+    {
+        return _shards.length;
+    }
+
+    public CSocketMetrics getMetrics()
+    {
+        return _metrics;
+    }
+
+    public UdpSocket getShard(int index) 
+    {
+        return _shards[index];
+    }
+
+    public CSocketAddress getLocalAddress()
+    {
+        return (_shards.length > 0) ? _shards[0].getLocalAddress() : new CSocketAddress("0.0.0.0", 0);
+    }
+
+    // Every shard owns a SO_REUSEPORT socket and the kernel keeps each peer on one shard.
+    public UdpListener(DatagramSocket[] sockets)
+    {
+        _reusePort = true;
+        _metrics = new CSocketMetrics(NetworkComm.getMetrics());
+        _shards = new UdpSocket[(sockets != null) ? sockets.length : 0];
+        _started = new AtomicBoolean(false);
+
+        for (int n = 0; n < _shards.length; n++)
+            _shards[n] = new UdpSocket(sockets[n], _metrics);
+
+        if (_shards.length > 0)
+            _metrics.register("UdpListener", getLocalAddress());
+    }
+
+    // The shards share one socket; a single reader hands each datagram to a shard by peer hash, so a
+    // peer's datagrams are still reassembled by one parser.
+    public UdpListener(DatagramSocket socket, int shards)
+    {
+        _reusePort = false;
+        _metrics = new CSocketMetrics(NetworkComm.getMetrics());
+        _shards = new UdpSocket[(socket != null) ? Math.max(1, shards) : 0];
+        _workers = new Worker[_shards.length];
+        _socket = socket;
+        _started = new AtomicBoolean(false);
+
+        for (int n = 0; n < _shards.length; n++)
+        {
+            _shards[n] = new UdpSocket(socket, _metrics);
+            _shards[n].setHandoff(true);
+            _workers[n] = new Worker(_shards[n]);
+        }
+
+        if (_shards.length > 0)
+            _metrics.register("UdpListener", getLocalAddress());
+    }
+
+    public void setReceivedCallback(CSocketReceivedCallback callback)
+    {
+        for (UdpSocket shard : _shards)
+            shard.setReceivedCallback(callback);
+
+        if (_workers != null && _shards.length > 0 && _started.compareAndSet(false, true))
+        {
+            for (Worker worker : _workers)
+                NetworkComm.execute(worker);
+
+            NetworkComm.execute(this);
+        }
+    }
+
+    public void send(CSocketSendData data, CSocketAddress address)
+    {
+        if (_shards.length > 0)
+            getShard(address).send(data, address);
+    }
+
+    public void send(ByteBuffer frame, CSocketAddress address)
+    {
+        if (_shards.length > 0)
+            getShard(address).send(frame, address);
+    }
+
+    public void close()
+    {
+        for (UdpSocket shard : _shards)
+            shard.close();
+
+        _metrics.unregister();
+    }
+
+    @Override
+    public void run()
+    {
+        DatagramPacket packet = new DatagramPacket(new byte[DATAGRAM_SIZE], DATAGRAM_SIZE);
+
+        while (true)
+        {
+            try {
+                packet.setLength(DATAGRAM_SIZE);
+                _socket.receive(packet);
+            }
+            catch (Exception e) {
+                break;
+            }
+
+            InetSocketAddress address = (InetSocketAddress)packet.getSocketAddress();
+            byte[] datagram = Arrays.copyOf(packet.getData(), packet.getLength());
+
+            _workers[Math.floorMod(address.hashCode(), _workers.length)].offer(datagram, address);
+        }
+
+        for (Worker worker : _workers)
+            worker.close();
+    }
+
+    private UdpSocket getShard(CSocketAddress address)
+    {
+        return _shards[Math.floorMod(address.hashCode(), _shards.length)];
+    }
+
+    private static class Worker implements Runnable
+    {
+        private UdpSocket _shard;
+        private ArrayBlockingQueue<Datagram> _queue;
+
+        private Worker(UdpSocket shard)
+        {
+            _shard = shard;
+            _queue = new ArrayBlockingQueue<Datagram>(QUEUE_CAPACITY);
+        }
+
+        // A full queue drops the datagram, as a full socket receive buffer would.
+        private void offer(byte[] datagram, InetSocketAddress address)
+        {
+            _queue.offer(new Datagram(datagram, address));
+        }
+
+        private void close()
+        {
+            try {
+                _queue.put(new Datagram(null, null));
+            }
+            catch (InterruptedException e) {}
+        }
+
+        @Override
+        public void run()
+        {
+            while (true)
+            {
+                Datagram datagram;
+
+                try {
+                    datagram = _queue.take();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+
+                _shard.received(datagram._bytes, datagram._address);
+
+                if (datagram._bytes == null)
+                    return;
+            }
+        }
+    }
+
+    private static class Datagram
+    {
+        private byte[] _bytes;
+        private InetSocketAddress _address;
+
+        private Datagram(byte[] bytes, InetSocketAddress address)
+        {
+            _bytes = bytes;
+            _address = address;
+        }
+    }
+}
@@ -1,16 +1,61 @@
 package xyz.olooko.comm.netcomm;
 
 import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
 
 public class UdpSocket extends CSocket
 {
+    private CSocketDatagramBatcher _batcher;
+
     public UdpSocket(DatagramSocket s) 
     { 
-        super(s, CSocketProtocolType.Udp);
+        this(s, NetworkComm.getMetrics());
+    }
+
+    UdpSocket(DatagramSocket s, CSocketMetrics metrics) 
+    { 
+        super(s, CSocketProtocolType.Udp, metrics);
+
+        _batcher = new CSocketDatagramBatcher(this::sendBatch, getMetrics());
     }
 
     public void send(CSocketSendData data, CSocketAddress address)
     {
-        super.send(data, address);
+        if (_batcher.getBatchPolicy().isImmediate())
+            super.send(data, address);
+        else if (data.getBuildResult() == CSocketSendDataBuildResult.Successful)
+        {
+            _batcher.add(ByteBuffer.wrap(encode(data)), data.getCommand(), address);
+        }
     }    
-}
\ No newline at end of file
+
+    public void send(ByteBuffer frame, CSocketAddress address)
+    {
+        if (_batcher.getBatchPolicy().isImmediate())
+            super.send(frame, address);
+        else
+            _batcher.add(frame, CSocketSendDataEncoder.getCommand(frame), address);
+    }
+
+    public void flush()
+    {
+        _batcher.flush();
+    }
+
+    @Override
+    public void close()
+    {
+        _batcher.flush();
+        super.close();
+    }
+
+    public CSocketBatchPolicy getBatchPolicy()
+    {
+        return _batcher.getBatchPolicy();
+    }
+
+    public void setBatchPolicy(CSocketBatchPolicy policy)
+    {
+        _batcher.setBatchPolicy(policy);
+    }
+}